@@ -0,0 +1,39 @@
+package de.digitalcollections.commons.file.backend.api;
+
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.util.Collections;
+import java.util.Map;
+
+/** Result of looking up many identifiers at once: found file resources and failed lookups. */
+public class BatchFindResult {
+
+  private final Map<String, Exception> failures;
+  private final Map<String, FileResource> fileResources;
+
+  public BatchFindResult(Map<String, FileResource> fileResources, Map<String, Exception> failures) {
+    this.fileResources = Collections.unmodifiableMap(fileResources);
+    this.failures = Collections.unmodifiableMap(failures);
+  }
+
+  /**
+   * @return exceptions of failed lookups (usually ResourceIOException or ResourceNotFoundException)
+   *     by identifier
+   */
+  public Map<String, Exception> getFailures() {
+    return failures;
+  }
+
+  /**
+   * @return found file resources by identifier, in order of the requested identifiers
+   */
+  public Map<String, FileResource> getFileResources() {
+    return fileResources;
+  }
+
+  /**
+   * @return true if all identifiers have been found
+   */
+  public boolean isComplete() {
+    return failures.isEmpty();
+  }
+}
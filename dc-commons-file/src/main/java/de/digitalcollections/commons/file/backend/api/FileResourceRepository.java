@@ -5,13 +5,30 @@ import de.digitalcollections.model.exception.ResourceIOException;
 import de.digitalcollections.model.exception.ResourceNotFoundException;
 import de.digitalcollections.model.file.MimeType;
 import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
 /**
  * Repository providing methods for creating FileResource instances and reading binary data of a
  * FileResource.
+ *
+ * <p>Methods added after the initial set have default implementations built on {@link
+ * #getInputStream(FileResource)} and {@link #find(String, MimeType)}, so that existing
+ * implementations keep working; override them for efficient access.
  */
 public interface FileResourceRepository {
 
@@ -45,6 +62,36 @@ public interface FileResourceRepository {
    */
   FileResource createByMimeType(MimeType mimeType);
 
+  /**
+   * Look up many identifiers at once, e.g. all pages of a book. Compared to calling {@link
+   * #find(String, MimeType)} for every identifier, directories shared by several candidates are
+   * listed only once and the file system is accessed in parallel (see {@code
+   * resource-repository.reading.batch-parallelism}).
+   *
+   * <p>The default implementation looks up the identifiers one by one.
+   *
+   * @param identifiers identifiers of FileResources
+   * @param mimeType mimetype of the FileResources
+   * @return found FileResources and the exceptions of failed lookups, by identifier
+   * @throws ResourceIOException thrown if mimetype is missing or the lookup has been interrupted
+   */
+  default BatchFindResult find(Collection<String> identifiers, MimeType mimeType)
+      throws ResourceIOException {
+    if (mimeType == null) {
+      throw new ResourceIOException("missing mimetype");
+    }
+    Map<String, FileResource> fileResources = new LinkedHashMap<>();
+    Map<String, Exception> failures = new LinkedHashMap<>();
+    for (String identifier : new LinkedHashSet<>(identifiers)) {
+      try {
+        fileResources.put(identifier, find(identifier, mimeType));
+      } catch (ResourceIOException | ResourceNotFoundException | RuntimeException e) {
+        failures.put(identifier, e);
+      }
+    }
+    return new BatchFindResult(fileResources, failures);
+  }
+
   /**
    * @param identifier identifier of FileResource, used to lookup URI for FileResource
    * @param mimeType mimetype of the FileResource
@@ -58,6 +105,33 @@ public interface FileResourceRepository {
   FileResource find(String identifier, MimeType mimeType)
       throws ResourceIOException, ResourceNotFoundException;
 
+  /**
+   * Convenience method for directly getting FileResource binary data as ByteBuffer. Local files at
+   * least as large as the configured memory mapping threshold are returned as read-only {@link
+   * java.nio.MappedByteBuffer}, so their content is served from the page cache of the operating
+   * system instead of being copied into the Java heap. Smaller files are read into a heap buffer of
+   * exactly the size of the file.
+   *
+   * <p>The default implementation reads the {@link #getInputStream(FileResource)} into the heap.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return binary data of FileResource, positioned at 0
+   * @throws FileSystemResourceIOException if there was a raw disk I/O error while reading the
+   *     resource
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading FileResource data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default ByteBuffer getAsByteBuffer(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    try (InputStream is = getInputStream(resource)) {
+      return ByteBuffer.wrap(is.readAllBytes());
+    } catch (ResourceIOException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not read bytes from resource: " + resource, e);
+    }
+  }
+
   /**
    * @param resourceUri URI for accessing FileResource data
    * @return InputStream for reading FileResource data
@@ -79,6 +153,59 @@ public interface FileResourceRepository {
   InputStream getInputStream(FileResource resource)
       throws ResourceIOException, ResourceNotFoundException;
 
+  /**
+   * Open a part of the binary data of a FileResource, e.g. for answering HTTP range requests. Local
+   * files are positioned directly at the offset, for {@code http(s):} resources a range request is
+   * issued. Only other resources are read and discarded up to the offset.
+   *
+   * <p>The default implementation skips and bounds the {@link #getInputStream(FileResource)}.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param offset position of the first byte to read
+   * @param length maximum number of bytes to read, -1 for reading up to the end
+   * @return InputStream for reading the requested part of the FileResource data, empty if offset is
+   *     beyond the end or length is 0 (then without accessing the resource)
+   * @throws FileSystemResourceIOException if there was a raw disk I/O error while reading the
+   *     resource
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading FileResource data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default InputStream getInputStream(FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (offset < 0 || length < -1) {
+      throw new IllegalArgumentException("Invalid range: offset " + offset + ", length " + length);
+    }
+    if (length == 0) {
+      return InputStream.nullInputStream();
+    }
+    InputStream is = getInputStream(resource);
+    try {
+      IOUtils.skip(is, offset);
+      return BoundedInputStream.builder().setInputStream(is).setMaxCount(length).get();
+    } catch (IOException e) {
+      IOUtils.closeQuietly(is);
+      throw new ResourceIOException("Could not read " + resource.getUri(), e);
+    }
+  }
+
+  /**
+   * Channel based counterpart of {@link #getInputStream(FileResource, long, long)}.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param offset position of the first byte to read
+   * @param length maximum number of bytes to read, -1 for reading up to the end
+   * @return channel for reading the requested part of the FileResource data
+   * @throws FileSystemResourceIOException if there was a raw disk I/O error while reading the
+   *     resource
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading FileResource data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default ReadableByteChannel getReadableByteChannel(
+      FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    return Channels.newChannel(getInputStream(resource, offset, length));
+  }
+
   /**
    * @param resource FileResource containing URI for accessing FileResource data
    * @return Reader for InputStream of FileResource data
@@ -88,4 +215,103 @@ public interface FileResourceRepository {
    * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
    */
   Reader getReader(FileResource resource) throws ResourceIOException, ResourceNotFoundException;
+
+  /**
+   * Discard everything cached about the given identifier, e.g. after a file for it has been
+   * written. Does nothing if the implementation does not cache lookups.
+   *
+   * @param identifier identifier of FileResource
+   */
+  default void invalidate(String identifier) {}
+
+  /**
+   * Read the binary data of a FileResource without blocking the calling thread, e.g. an event loop
+   * thread of a reactive server. Local files ({@code file:} URIs) are read by an {@link
+   * java.nio.channels.AsynchronousFileChannel}, {@code http(s)} resources by an asynchronous
+   * request. Other resources are read by a blocking stream on an executor.
+   *
+   * <p>The default implementation reads by {@link #getAsByteBuffer(FileResource)} on the calling
+   * thread.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return future of the binary data of FileResource in a heap buffer, positioned at 0; completes
+   *     exceptionally with the exceptions declared by {@link #getAsByteBuffer(FileResource)}
+   */
+  default CompletableFuture<ByteBuffer> readAsync(FileResource resource) {
+    try {
+      return CompletableFuture.completedFuture(getAsByteBuffer(resource));
+    } catch (ResourceIOException | ResourceNotFoundException | RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Write a part of the binary data of a FileResource to a channel, e.g. for answering HTTP range
+   * requests. Like {@link #transferTo(FileResource, WritableByteChannel)} local files are
+   * transferred without passing the Java heap.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param offset position of the first byte to transfer
+   * @param length maximum number of bytes to transfer, -1 for transferring up to the end
+   * @param target channel to write to, should be in blocking mode
+   * @return number of transferred bytes
+   * @throws FileSystemResourceIOException if there was a raw disk I/O error while reading the
+   *     resource
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading or writing data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default long transferTo(
+      FileResource resource, long offset, long length, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    try (InputStream is = getInputStream(resource, offset, length)) {
+      return is.transferTo(Channels.newOutputStream(target));
+    } catch (ResourceIOException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not transfer " + resource.getUri(), e);
+    }
+  }
+
+  /**
+   * Write the binary data of a FileResource to a channel. For local files ({@code file:} URIs) the
+   * data is transferred by {@link java.nio.channels.FileChannel#transferTo(long, long,
+   * WritableByteChannel)}, which lets the operating system copy it directly (e.g. by sendfile)
+   * without passing the Java heap. Other resources are copied through a buffer. The target channel
+   * is not closed.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param target channel to write to, should be in blocking mode
+   * @return number of transferred bytes
+   * @throws FileSystemResourceIOException if there was a raw disk I/O error while reading the
+   *     resource
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading or writing data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default long transferTo(FileResource resource, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    return transferTo(resource, 0, -1, target);
+  }
+
+  /**
+   * Write the binary data of a FileResource to an output stream. The output stream is not closed.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param target stream to write to
+   * @return number of transferred bytes
+   * @throws FileSystemResourceIOException if there was a raw disk I/O error while reading the
+   *     resource
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading or writing data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   * @see #transferTo(FileResource, WritableByteChannel)
+   */
+  default long transferTo(FileResource resource, OutputStream target)
+      throws ResourceIOException, ResourceNotFoundException {
+    try (InputStream is = getInputStream(resource)) {
+      return is.transferTo(target);
+    } catch (ResourceIOException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not transfer " + resource.getUri(), e);
+    }
+  }
 }
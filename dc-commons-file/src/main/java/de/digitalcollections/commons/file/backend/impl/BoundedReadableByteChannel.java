@@ -0,0 +1,51 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/** Channel reading at most a given number of bytes from an underlying channel. */
+class BoundedReadableByteChannel implements ReadableByteChannel {
+
+  private final ReadableByteChannel channel;
+  private long remaining;
+
+  /**
+   * @param channel channel to read from, closed when this channel is closed
+   * @param length maximum number of bytes to read, negative for no limit
+   */
+  BoundedReadableByteChannel(ReadableByteChannel channel, long length) {
+    this.channel = channel;
+    this.remaining = length < 0 ? Long.MAX_VALUE : length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return channel.isOpen();
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    if (remaining <= 0) {
+      return -1;
+    }
+    int limit = dst.limit();
+    if (dst.remaining() > remaining) {
+      dst.limit(dst.position() + (int) remaining);
+    }
+    try {
+      int read = channel.read(dst);
+      if (read > 0) {
+        remaining -= read;
+      }
+      return read;
+    } finally {
+      dst.limit(limit);
+    }
+  }
+}
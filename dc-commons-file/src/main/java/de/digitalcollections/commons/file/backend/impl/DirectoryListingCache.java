@@ -0,0 +1,221 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import de.digitalcollections.commons.file.backend.impl.cache.CacheStatistics;
+import de.digitalcollections.commons.file.backend.impl.cache.EvictionPolicy;
+import de.digitalcollections.commons.file.backend.impl.cache.ExpiringCache;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lists directories, optionally caching the listings (see {@link DirectoryListingCacheConfig}).
+ * Cached listings are dropped when the {@link WatchService} reports created or deleted files in the
+ * directory and expire after their time to live in any case.
+ */
+@Component
+public class DirectoryListingCache implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryListingCache.class);
+
+  private static final class Listing {
+
+    private final List<Path> entries;
+    private volatile List<Path> regularFiles;
+
+    Listing(List<Path> entries) {
+      this.entries = Collections.unmodifiableList(entries);
+    }
+  }
+
+  private final ExpiringCache<Path, Listing> cache;
+  // counts watch events, listings taken while an event arrived are not trusted
+  private final AtomicLong eventCount = new AtomicLong();
+  private final int maxEntries;
+  private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+  private final WatchService watchService;
+
+  @Autowired
+  public DirectoryListingCache(IdentifierPatternToFileResourceUriResolvingConfig config) {
+    this(config.getDirectoryListingCache());
+  }
+
+  public DirectoryListingCache(DirectoryListingCacheConfig config) {
+    if (config == null || !config.isEnabled()) {
+      this.cache = null;
+      this.maxEntries = 0;
+      this.watchService = null;
+      return;
+    }
+    EvictionPolicy<Path> evictionPolicy = EvictionPolicy.forName(config.getEvictionPolicy());
+    // bounded by the listed entries, too, as a single listing may hold millions of them
+    this.cache =
+        new ExpiringCache<>(
+            config.getTtl(),
+            config.getMaxEntries(),
+            config.getMaxListedEntries(),
+            listing -> listing.entries.size(),
+            evictionPolicy);
+    this.maxEntries = config.getMaxEntries();
+    this.watchService = config.isWatch() ? createWatchService() : null;
+    if (watchService != null) {
+      Thread watchThread = new Thread(this::processEvents, "directory-listing-cache-watch");
+      watchThread.setDaemon(true);
+      watchThread.start();
+    }
+  }
+
+  private static WatchService createWatchService() {
+    try {
+      return FileSystems.getDefault().newWatchService();
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.warn("Can not watch directories, cached listings only expire by ttl", e);
+      return null;
+    }
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  /**
+   * @param directory directory to be listed
+   * @return all entries of the directory
+   * @throws IOException if the directory can not be listed
+   */
+  public List<Path> getEntries(Path directory) throws IOException {
+    return getListing(directory).entries;
+  }
+
+  /**
+   * @param directory directory to be listed
+   * @return regular files of the directory
+   * @throws IOException if the directory can not be listed
+   */
+  public List<Path> getRegularFiles(Path directory) throws IOException {
+    Listing listing = getListing(directory);
+    List<Path> regularFiles = listing.regularFiles;
+    if (regularFiles == null) {
+      regularFiles =
+          listing.entries.stream()
+              .filter(Files::isRegularFile)
+              .collect(Collectors.toUnmodifiableList());
+      listing.regularFiles = regularFiles;
+    }
+    return regularFiles;
+  }
+
+  private Listing getListing(Path directory) throws IOException {
+    if (cache == null) {
+      return list(directory);
+    }
+    Path key = directory.toAbsolutePath().normalize();
+    Listing listing = cache.get(key);
+    if (listing == null) {
+      long eventsBefore = eventCount.get();
+      // watch before listing, so that no change gets lost
+      watch(key);
+      listing = list(key);
+      cache.put(key, listing);
+      if (eventCount.get() != eventsBefore) {
+        cache.invalidate(key);
+      }
+    }
+    return listing;
+  }
+
+  public CacheStatistics getStatistics() {
+    return cache == null ? CacheStatistics.EMPTY : cache.getStatistics();
+  }
+
+  /**
+   * Discard the cached listing of a directory, e.g. after writing a file into it.
+   *
+   * @param directory the directory
+   */
+  public void invalidate(Path directory) {
+    if (cache != null) {
+      cache.invalidate(directory.toAbsolutePath().normalize());
+    }
+  }
+
+  private static Listing list(Path directory) throws IOException {
+    List<Path> entries = new ArrayList<>();
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+      for (Path path : directoryStream) {
+        entries.add(path);
+      }
+    }
+    return new Listing(entries);
+  }
+
+  private void processEvents() {
+    while (true) {
+      WatchKey key;
+      try {
+        key = watchService.take();
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+      key.pollEvents();
+      eventCount.incrementAndGet();
+      Path directory = watchedDirectories.get(key);
+      if (directory == null || !cache.invalidate(directory)) {
+        // listing is not cached (anymore), so there is nothing to watch
+        key.cancel();
+        watchedDirectories.remove(key);
+      } else if (!key.reset()) {
+        watchedDirectories.remove(key);
+      }
+    }
+  }
+
+  private void watch(Path directory) {
+    if (watchService == null) {
+      return;
+    }
+    if (watchedDirectories.size() >= maxEntries) {
+      // stop watching evicted or expired listings
+      watchedDirectories
+          .entrySet()
+          .removeIf(
+              e -> {
+                if (cache.contains(e.getValue())) {
+                  return false;
+                }
+                e.getKey().cancel();
+                return true;
+              });
+    }
+    try {
+      WatchKey key =
+          directory.register(
+              watchService,
+              StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_DELETE);
+      watchedDirectories.put(key, directory);
+    } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+      LOGGER.debug("Can not watch {}, cached listing only expires by ttl", directory, e);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the cache for directory listings used for wildcard filenames, batch lookups and
+ * {@code findKeys}, bound to {@code resource-repository.resolved.directory-listing-cache}. Caching
+ * is disabled by default.
+ *
+ * <p>Cached listings of local directories are invalidated by a {@link java.nio.file.WatchService}
+ * as soon as files are created or deleted. As watch events are unreliable on network file systems
+ * (e.g. NFS), listings additionally expire after the time to live.
+ *
+ * <p>The cache is bounded by the number of directories ({@code max-entries}) and by the total
+ * number of entries of their listings ({@code max-listed-entries}), so that a few huge directories
+ * can not fill the heap. Listings of directories with more entries than that are not cached at all.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   resolved:
+ *     directory-listing-cache:
+ *       enabled: true
+ *       ttl: 1m
+ *       max-entries: 5000
+ *       max-listed-entries: 1000000
+ *       watch: true
+ * </pre>
+ */
+public class DirectoryListingCacheConfig extends ResolutionCacheConfig {
+
+  private long maxListedEntries = 1_000_000;
+  private boolean watch = true;
+
+  public DirectoryListingCacheConfig() {
+    super(false, Duration.ofSeconds(30), 1000);
+  }
+
+  /**
+   * @return maximum total number of entries of all cached listings
+   */
+  public long getMaxListedEntries() {
+    return maxListedEntries;
+  }
+
+  public void setMaxListedEntries(long maxListedEntries) {
+    this.maxListedEntries = maxListedEntries;
+  }
+
+  /**
+   * @return true if cached listings are invalidated by file system events
+   */
+  public boolean isWatch() {
+    return watch;
+  }
+
+  public void setWatch(boolean watch) {
+    this.watch = watch;
+  }
+}
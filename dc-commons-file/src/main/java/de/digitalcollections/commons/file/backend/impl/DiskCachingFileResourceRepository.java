@@ -0,0 +1,735 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import de.digitalcollections.commons.file.backend.api.BatchFindResult;
+import de.digitalcollections.commons.file.backend.api.FileResourceRepository;
+import de.digitalcollections.commons.file.backend.impl.cache.CacheStatistics;
+import de.digitalcollections.commons.file.backend.impl.cache.ExpiringCache;
+import de.digitalcollections.commons.file.backend.impl.cache.LruEvictionPolicy;
+import de.digitalcollections.commons.file.backend.impl.cache.SingleFlight;
+import de.digitalcollections.model.exception.ResourceIOException;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import de.digitalcollections.model.file.MimeType;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Keeps local copies of {@code http(s)} file resources read through the wrapped repository, so that
+ * remote resources read again and again (e.g. manifests or OCR files of a remote archive) are
+ * served from local disk. A copy is used without asking the server for the configured time, then it
+ * is revalidated by a conditional request (ETag or last modification). The copies are written
+ * atomically (temporary file and rename), kept across restarts and bounded in total size by
+ * deleting the least recently used ones. A copy is not deleted while a reader is opening or reading
+ * it by a call of this repository; streams and channels returned keep the file open.
+ *
+ * <p>All reading methods serve http(s) resources from their copy, so local copies are memory mapped
+ * or transferred by the operating system like any other local file. Lookups and resources with
+ * other schemes are passed to the wrapped repository unchanged. {@link #readAsync(FileResource)}
+ * revalidates and downloads on an executor and reads the copy asynchronously.
+ *
+ * <p>Example (wrapping the repository of the Spring context):
+ *
+ * <pre>
+ * &#64;Bean
+ * &#64;Primary
+ * public FileResourceRepository cachingFileResourceRepository(
+ *     FileResourceRepositoryImpl repository,
+ *     HttpFileResourceClient httpClient,
+ *     FileResourceHttpConfig config,
+ *     FileResourceIoExecutor ioExecutor) {
+ *   return new DiskCachingFileResourceRepository(
+ *       repository, httpClient, config.getDiskCache(), ioExecutor);
+ * }
+ * </pre>
+ */
+public class DiskCachingFileResourceRepository implements FileResourceRepository, DisposableBean {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(DiskCachingFileResourceRepository.class);
+
+  private static final String DATA_SUFFIX = ".data";
+  private static final String METADATA_SUFFIX = ".properties";
+  private static final String TEMP_SUFFIX = ".tmp";
+  // a copy evicted between downloading and pinning it is fetched again that often
+  private static final int MAX_PIN_ATTEMPTS = 3;
+  private static final int MAX_UNCACHEABLE_KEYS = 10_000;
+
+  /** Reads a local copy, or the resource itself if it is not cached. */
+  @FunctionalInterface
+  private interface CopyReader<T> {
+
+    T read(FileResource resource) throws ResourceIOException, ResourceNotFoundException;
+  }
+
+  private static final class Entry {
+
+    private final String key;
+    private final HttpFileResourceClient.Metadata metadata;
+    private int pins; // readers using the copy, guarded by entries
+    private final long size;
+    private volatile long validatedAt;
+
+    Entry(String key, HttpFileResourceClient.Metadata metadata, long size, long validatedAt) {
+      this.key = key;
+      this.metadata = metadata;
+      this.size = size;
+      this.validatedAt = validatedAt;
+    }
+  }
+
+  private final FileResourceRepository delegate;
+  private final SingleFlight<String, Path> downloads = new SingleFlight<>();
+  private final Path directory;
+  // in access order, guarded by itself
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final AtomicLong evictionCount = new AtomicLong();
+  private final AtomicLong expirationCount = new AtomicLong();
+  private final Executor fetchExecutor;
+  private final FileResourceIoExecutor ownedFetchExecutor;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final HttpFileResourceClient httpClient;
+  private final long maxSize;
+  private final AtomicLong missCount = new AtomicLong();
+  private final long revalidateAfterMillis;
+  private final boolean staleIfError;
+  private long totalSize; // guarded by entries
+  // resources too large or failing to be stored, read from the server until revalidation is due
+  private final ExpiringCache<String, HttpFileResourceClient.Metadata> uncacheable;
+
+  /**
+   * @param delegate repository doing the lookups and reading the copies
+   * @param httpClient client fetching the http(s) resources
+   * @param config location, size bound and revalidation of the copies
+   */
+  public DiskCachingFileResourceRepository(
+      FileResourceRepository delegate,
+      HttpFileResourceClient httpClient,
+      HttpDiskCacheConfig config) {
+    this(delegate, httpClient, config, null);
+  }
+
+  /**
+   * @param delegate repository doing the lookups and reading the copies
+   * @param httpClient client fetching the http(s) resources
+   * @param config location, size bound and revalidation of the copies
+   * @param ioExecutor executor fetching for {@link #readAsync(FileResource)}, {@code null} for an
+   *     unbounded executor owned by this repository
+   */
+  public DiskCachingFileResourceRepository(
+      FileResourceRepository delegate,
+      HttpFileResourceClient httpClient,
+      HttpDiskCacheConfig config,
+      FileResourceIoExecutor ioExecutor) {
+    this.delegate = delegate;
+    this.httpClient = httpClient;
+    if (ioExecutor == null) {
+      this.ownedFetchExecutor = new FileResourceIoExecutor(new FileResourceIoConfig());
+      this.fetchExecutor = ownedFetchExecutor;
+    } else {
+      this.ownedFetchExecutor = null;
+      this.fetchExecutor = ioExecutor;
+    }
+    this.directory = Paths.get(config.getDirectory()).toAbsolutePath();
+    this.maxSize = config.getMaxSize().toBytes();
+    this.revalidateAfterMillis = config.getRevalidateAfter().toMillis();
+    this.staleIfError = config.isStaleIfError();
+    this.uncacheable =
+        new ExpiringCache<>(
+            config.getRevalidateAfter(), MAX_UNCACHEABLE_KEYS, new LruEvictionPolicy<>());
+    try {
+      Files.createDirectories(directory);
+      load();
+    } catch (IOException e) {
+      throw new IllegalStateException("Can not use " + directory + " for caching", e);
+    }
+  }
+
+  @Override
+  public void assertReadability(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    read(
+        resource,
+        r -> {
+          delegate.assertReadability(r);
+          return null;
+        });
+  }
+
+  @Override
+  public FileResource create() {
+    return delegate.create();
+  }
+
+  @Override
+  public FileResource create(String identifier, MimeType mimeType) throws ResourceIOException {
+    return delegate.create(identifier, mimeType);
+  }
+
+  @Override
+  public FileResource createByMimeType(MimeType mimeType) {
+    return delegate.createByMimeType(mimeType);
+  }
+
+  private void delete(String key) {
+    try {
+      Files.deleteIfExists(getMetadataFile(key));
+      Files.deleteIfExists(getDataFile(key));
+    } catch (IOException e) {
+      LOGGER.warn("Can not delete local copy {}", getDataFile(key), e);
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOGGER.debug("Can not delete {}", file, e);
+    }
+  }
+
+  private void evict(String keptKey) {
+    List<Entry> evicted = new ArrayList<>();
+    synchronized (entries) {
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (totalSize > maxSize && iterator.hasNext()) {
+        Entry entry = iterator.next();
+        if (entry.key.equals(keptKey) || entry.pins > 0) {
+          // pinned copies are evicted by a later call, once their readers are done
+          continue;
+        }
+        iterator.remove();
+        totalSize -= entry.size;
+        evicted.add(entry);
+      }
+    }
+    evictionCount.addAndGet(evicted.size());
+    evicted.forEach(entry -> delete(entry.key));
+  }
+
+  /**
+   * @return local copy of a http(s) resource or {@code null} if it can not be cached
+   */
+  private Path fetch(URI uri) throws ResourceIOException, ResourceNotFoundException {
+    String key = getKey(uri);
+    Entry entry = getEntry(key);
+    if (isValid(entry)) {
+      hitCount.incrementAndGet();
+      return getDataFile(key);
+    }
+    if (uncacheable.contains(key)) {
+      return null;
+    }
+    // concurrent requests of an expired or missing copy share one revalidation or download
+    return downloads.execute(key, () -> revalidate(key, uri, entry));
+  }
+
+  private Path revalidate(String key, URI uri, Entry entry)
+      throws ResourceIOException, ResourceNotFoundException {
+    HttpFileResourceClient.Download download;
+    try {
+      download = httpClient.getIfModified(uri, entry == null ? null : entry.metadata);
+    } catch (ResourceNotFoundException e) {
+      remove(key);
+      throw e;
+    } catch (ResourceIOException e) {
+      if (entry == null || !staleIfError) {
+        throw e;
+      }
+      LOGGER.warn("Can not revalidate {}, serving the local copy", uri, e);
+      hitCount.incrementAndGet();
+      return getDataFile(key);
+    }
+    if (download == null) {
+      entry.validatedAt = System.currentTimeMillis();
+      hitCount.incrementAndGet();
+      return getDataFile(key);
+    }
+    if (entry == null) {
+      missCount.incrementAndGet();
+    } else {
+      expirationCount.incrementAndGet();
+    }
+    Path dataFile = store(key, uri, download);
+    if (dataFile == null) {
+      rememberUncacheable(key, download.getMetadata());
+    }
+    return dataFile;
+  }
+
+  /**
+   * Remember a resource which can not be cached, so that it is read from the server directly
+   * instead of being downloaded twice on every read. It is tried again once revalidation is due.
+   */
+  private void rememberUncacheable(String key, HttpFileResourceClient.Metadata metadata) {
+    // an outdated copy must not be served any longer
+    remove(key);
+    if (revalidateAfterMillis > 0) {
+      uncacheable.put(key, metadata);
+    }
+  }
+
+  @Override
+  public BatchFindResult find(Collection<String> identifiers, MimeType mimeType)
+      throws ResourceIOException {
+    return delegate.find(identifiers, mimeType);
+  }
+
+  @Override
+  public FileResource find(String identifier, MimeType mimeType)
+      throws ResourceIOException, ResourceNotFoundException {
+    return delegate.find(identifier, mimeType);
+  }
+
+  /**
+   * Drop the entry of a copy which has been deleted by someone else (e.g. a clean up of the
+   * directory), unless it has been replaced in the meantime.
+   */
+  private void forget(Entry entry) {
+    LOGGER.warn("Local copy {} has been deleted, reading from the server", getDataFile(entry.key));
+    synchronized (entries) {
+      if (entries.remove(entry.key, entry)) {
+        totalSize -= entry.size;
+      }
+    }
+  }
+
+  @Override
+  public ByteBuffer getAsByteBuffer(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    return read(resource, delegate::getAsByteBuffer);
+  }
+
+  @Override
+  public void destroy() {
+    if (ownedFetchExecutor != null) {
+      ownedFetchExecutor.destroy();
+    }
+  }
+
+  private Path getDataFile(String key) {
+    return directory.resolve(key + DATA_SUFFIX);
+  }
+
+  @Override
+  public InputStream getInputStream(URI resourceUri)
+      throws ResourceIOException, ResourceNotFoundException {
+    FileResource resource = delegate.create();
+    resource.setUri(resourceUri);
+    return read(resource, r -> delegate.getInputStream(r.getUri()));
+  }
+
+  @Override
+  public InputStream getInputStream(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    return read(resource, delegate::getInputStream);
+  }
+
+  @Override
+  public InputStream getInputStream(FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (length == 0) {
+      // nothing to fetch
+      return delegate.getInputStream(resource, offset, length);
+    }
+    return read(resource, r -> delegate.getInputStream(r, offset, length));
+  }
+
+  private Entry getEntry(String key) {
+    synchronized (entries) {
+      return entries.get(key);
+    }
+  }
+
+  private static String getKey(URI uri) {
+    return UUID.nameUUIDFromBytes(uri.toString().getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  private Path getMetadataFile(String key) {
+    return directory.resolve(key + METADATA_SUFFIX);
+  }
+
+  @Override
+  public ReadableByteChannel getReadableByteChannel(FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (length == 0) {
+      return delegate.getReadableByteChannel(resource, offset, length);
+    }
+    return read(resource, r -> delegate.getReadableByteChannel(r, offset, length));
+  }
+
+  @Override
+  public Reader getReader(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    return read(resource, delegate::getReader);
+  }
+
+  /**
+   * @return counters of the local copies: hits include copies revalidated by the server,
+   *     expirations count copies replaced because the resource has been modified
+   */
+  public CacheStatistics getStatistics() {
+    synchronized (entries) {
+      return new CacheStatistics(
+          hitCount.get(),
+          missCount.get(),
+          evictionCount.get(),
+          expirationCount.get(),
+          entries.size());
+    }
+  }
+
+  /**
+   * @return total size of the local copies in bytes
+   */
+  public long getTotalSize() {
+    synchronized (entries) {
+      return totalSize;
+    }
+  }
+
+  @Override
+  public void invalidate(String identifier) {
+    delegate.invalidate(identifier);
+  }
+
+  private static boolean isHttp(URI uri) {
+    return uri != null && uri.getScheme() != null && uri.getScheme().startsWith("http");
+  }
+
+  /**
+   * @return {@code true} if the copy may be used without asking the server
+   */
+  private boolean isValid(Entry entry) {
+    return entry != null && System.currentTimeMillis() - entry.validatedAt < revalidateAfterMillis;
+  }
+
+  /** Register the copies of a former run, least recently written first. */
+  private void load() throws IOException {
+    List<Path> metadataFiles = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String filename = file.getFileName().toString();
+        if (filename.endsWith(TEMP_SUFFIX)) {
+          // left behind by an interrupted download
+          Files.deleteIfExists(file);
+        } else if (filename.endsWith(METADATA_SUFFIX)) {
+          metadataFiles.add(file);
+        }
+      }
+    }
+    metadataFiles.sort(Comparator.comparingLong(this::getLastModifiedMillis));
+    for (Path metadataFile : metadataFiles) {
+      String filename = metadataFile.getFileName().toString();
+      String key = filename.substring(0, filename.length() - METADATA_SUFFIX.length());
+      Entry entry = readEntry(key);
+      if (entry == null) {
+        delete(key);
+        continue;
+      }
+      synchronized (entries) {
+        entries.put(key, entry);
+        totalSize += entry.size;
+      }
+    }
+    evict(null);
+  }
+
+  private long getLastModifiedMillis(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(
+          source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Fetch the local copy of a http(s) resource and pin it, so that it is not evicted before {@link
+   * #unpin(Entry)}.
+   *
+   * @return entry of the pinned copy or {@code null} if it can not be cached
+   */
+  private Entry pin(URI uri) throws ResourceIOException, ResourceNotFoundException {
+    String key = getKey(uri);
+    for (int attempt = 0; attempt < MAX_PIN_ATTEMPTS; attempt++) {
+      if (fetch(uri) == null) {
+        return null;
+      }
+      synchronized (entries) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+          entry.pins++;
+          return entry;
+        }
+      }
+      // evicted by a concurrent download right after fetching
+    }
+    return null;
+  }
+
+  /**
+   * Read the local copy of a http(s) resource, pinned while reading. Resources of other schemes and
+   * resources that can not be cached are read by the wrapped repository directly.
+   */
+  private <T> T read(FileResource resource, CopyReader<T> reader)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (!isHttp(resource.getUri())) {
+      return reader.read(resource);
+    }
+    Entry entry = pin(resource.getUri());
+    if (entry == null) {
+      return reader.read(resource);
+    }
+    try {
+      return reader.read(toLocal(resource, entry));
+    } catch (ResourceNotFoundException e) {
+      forget(entry);
+      return reader.read(resource);
+    } finally {
+      unpin(entry);
+    }
+  }
+
+  @Override
+  public CompletableFuture<ByteBuffer> readAsync(FileResource resource) {
+    if (!isHttp(resource.getUri()) || isValid(getEntry(getKey(resource.getUri())))) {
+      // no request to the server needed
+      return readCopyAsync(resource);
+    }
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    try {
+      fetchExecutor.execute(
+          () ->
+              readCopyAsync(resource)
+                  .whenComplete(
+                      (buffer, e) -> {
+                        if (e != null) {
+                          future.completeExceptionally(e);
+                        } else {
+                          future.complete(buffer);
+                        }
+                      }));
+    } catch (RuntimeException e) {
+      // e.g. RejectedExecutionException after shutdown
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Like {@link #read(FileResource, CopyReader)}, keeping the copy pinned until it has been read.
+   */
+  private CompletableFuture<ByteBuffer> readCopyAsync(FileResource resource) {
+    if (!isHttp(resource.getUri())) {
+      return delegate.readAsync(resource);
+    }
+    Entry entry;
+    try {
+      entry = pin(resource.getUri());
+    } catch (ResourceIOException | ResourceNotFoundException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    if (entry == null) {
+      return delegate.readAsync(resource);
+    }
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    delegate
+        .readAsync(toLocal(resource, entry))
+        .whenComplete(
+            (buffer, e) -> {
+              unpin(entry);
+              Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+              if (cause instanceof ResourceNotFoundException) {
+                forget(entry);
+                delegate
+                    .readAsync(resource)
+                    .whenComplete(
+                        (originBuffer, originError) -> {
+                          if (originError != null) {
+                            future.completeExceptionally(originError);
+                          } else {
+                            future.complete(originBuffer);
+                          }
+                        });
+              } else if (e != null) {
+                future.completeExceptionally(e);
+              } else {
+                future.complete(buffer);
+              }
+            });
+    return future;
+  }
+
+  /**
+   * @return entry of a copy written by a former run or {@code null} if the copy is incomplete
+   */
+  private Entry readEntry(String key) {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(getMetadataFile(key), StandardCharsets.UTF_8)) {
+      properties.load(reader);
+      long size = Long.parseLong(properties.getProperty("size"));
+      if (Files.size(getDataFile(key)) != size) {
+        return null;
+      }
+      String lastModified = properties.getProperty("lastModified");
+      HttpFileResourceClient.Metadata metadata =
+          new HttpFileResourceClient.Metadata(
+              size,
+              lastModified == null ? null : Instant.parse(lastModified),
+              properties.getProperty("etag"));
+      // revalidated on first use
+      return new Entry(key, metadata, size, 0);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.debug("Discarding local copy {}", getDataFile(key), e);
+      return null;
+    }
+  }
+
+  private void remove(String key) {
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.remove(key);
+      if (entry != null) {
+        totalSize -= entry.size;
+      }
+    }
+    if (entry != null) {
+      delete(key);
+    }
+  }
+
+  /**
+   * Write the downloaded content next to its metadata. Both are written to temporary files first
+   * and renamed, so readers never see partial content.
+   *
+   * @return the written copy or {@code null} if the content is too large or can not be written (see
+   *     {@link #rememberUncacheable(String, HttpFileResourceClient.Metadata)})
+   */
+  private Path store(String key, URI uri, HttpFileResourceClient.Download download) {
+    HttpFileResourceClient.Metadata metadata = download.getMetadata();
+    Path tempDataFile = null;
+    Path tempMetadataFile = null;
+    try (InputStream body = download.getBody()) {
+      if (metadata.getSize() > maxSize) {
+        return null;
+      }
+      tempDataFile = Files.createTempFile(directory, key, TEMP_SUFFIX);
+      long size;
+      try (OutputStream os = Files.newOutputStream(tempDataFile)) {
+        size = IOUtils.copyLarge(body, os, 0, maxSize + 1);
+      }
+      if (size > maxSize) {
+        return null;
+      }
+      Properties properties = new Properties();
+      properties.setProperty("uri", uri.toString());
+      properties.setProperty("size", String.valueOf(size));
+      if (metadata.getEtag() != null) {
+        properties.setProperty("etag", metadata.getEtag());
+      }
+      if (metadata.getLastModified() != null) {
+        properties.setProperty("lastModified", metadata.getLastModified().toString());
+      }
+      tempMetadataFile = Files.createTempFile(directory, key, TEMP_SUFFIX);
+      try (Writer writer = Files.newBufferedWriter(tempMetadataFile, StandardCharsets.UTF_8)) {
+        properties.store(writer, null);
+      }
+      Path dataFile = getDataFile(key);
+      move(tempDataFile, dataFile);
+      move(tempMetadataFile, getMetadataFile(key));
+      Entry entry = new Entry(key, metadata, size, System.currentTimeMillis());
+      synchronized (entries) {
+        Entry replaced = entries.put(key, entry);
+        totalSize += size - (replaced == null ? 0 : replaced.size);
+      }
+      evict(key);
+      return dataFile;
+    } catch (IOException e) {
+      LOGGER.warn("Can not store a local copy of {}, reading it from the server", uri, e);
+      return null;
+    } finally {
+      deleteQuietly(tempDataFile);
+      deleteQuietly(tempMetadataFile);
+    }
+  }
+
+  /**
+   * @return resource pointing to the local copy of a http(s) resource
+   */
+  private FileResource toLocal(FileResource resource, Entry entry) {
+    FileResource local = delegate.createByMimeType(resource.getMimeType());
+    local.setUri(getDataFile(entry.key).toUri());
+    local.setFilename(resource.getFilename());
+    return local;
+  }
+
+  @Override
+  public long transferTo(
+      FileResource resource, long offset, long length, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (length == 0) {
+      return delegate.transferTo(resource, offset, length, target);
+    }
+    return read(resource, r -> delegate.transferTo(r, offset, length, target));
+  }
+
+  @Override
+  public long transferTo(FileResource resource, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    return read(resource, r -> delegate.transferTo(r, target));
+  }
+
+  @Override
+  public long transferTo(FileResource resource, OutputStream target)
+      throws ResourceIOException, ResourceNotFoundException {
+    return read(resource, r -> delegate.transferTo(r, target));
+  }
+
+  private void unpin(Entry entry) {
+    synchronized (entries) {
+      entry.pins--;
+    }
+  }
+}
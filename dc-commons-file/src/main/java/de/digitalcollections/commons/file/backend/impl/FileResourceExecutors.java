@@ -0,0 +1,63 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Factory for executors running blocking file resource operations. */
+public final class FileResourceExecutors {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileResourceExecutors.class);
+
+  private FileResourceExecutors() {}
+
+  /**
+   * Create an executor for blocking I/O. On Java 21+ a virtual thread per task executor is used if
+   * {@code preferVirtualThreads} is set, otherwise a fixed pool of daemon platform threads.
+   *
+   * @param preferVirtualThreads use virtual threads if the JVM supports them
+   * @param poolSize number of platform threads if virtual threads are not used
+   * @param threadNamePrefix prefix of the names of platform threads
+   * @return new executor, to be shut down by the caller
+   */
+  public static ExecutorService newBlockingIoExecutor(
+      boolean preferVirtualThreads, int poolSize, String threadNamePrefix) {
+    if (preferVirtualThreads) {
+      ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+      if (virtualThreadExecutor != null) {
+        return virtualThreadExecutor;
+      }
+    }
+    return Executors.newFixedThreadPool(poolSize, newDaemonThreadFactory(threadNamePrefix));
+  }
+
+  private static ThreadFactory newDaemonThreadFactory(String threadNamePrefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, threadNamePrefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * @return {@code Executors.newVirtualThreadPerTaskExecutor()} or {@code null} if the JVM does not
+   *     support virtual threads (the library is compiled for Java 11)
+   */
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (NoSuchMethodException e) {
+      return null;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // e.g. preview feature not enabled
+      LOGGER.warn("Virtual threads not available, using platform threads: {}", e.toString());
+      return null;
+    }
+  }
+}
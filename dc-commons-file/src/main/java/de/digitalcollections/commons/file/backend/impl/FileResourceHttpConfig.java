@@ -0,0 +1,84 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the HTTP client used for {@code http(s)} file resources, bound to {@code
+ * resource-repository.http}.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   http:
+ *     connect-timeout: 2s
+ *     request-timeout: 1m
+ *     http2: true
+ *     head-probing: true
+ * </pre>
+ */
+@Component
+@ConfigurationProperties("resource-repository.http")
+public class FileResourceHttpConfig {
+
+  private Duration connectTimeout = Duration.ofSeconds(5);
+  private HttpDiskCacheConfig diskCache = new HttpDiskCacheConfig();
+  private boolean headProbing = true;
+  private boolean http2 = true;
+  private Duration requestTimeout = Duration.ofSeconds(30);
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  /**
+   * @return configuration of {@link DiskCachingFileResourceRepository}
+   */
+  public HttpDiskCacheConfig getDiskCache() {
+    return diskCache;
+  }
+
+  /**
+   * @return timeout until the response headers of a request are received
+   */
+  public Duration getRequestTimeout() {
+    return requestTimeout;
+  }
+
+  /**
+   * @return true if {@code find} checks existence, size and last modification of http(s) candidates
+   *     with a HEAD request instead of accepting the first one
+   */
+  public boolean isHeadProbing() {
+    return headProbing;
+  }
+
+  /**
+   * @return true if HTTP/2 is preferred, falling back to HTTP/1.1 if not supported by the server
+   */
+  public boolean isHttp2() {
+    return http2;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public void setDiskCache(HttpDiskCacheConfig diskCache) {
+    this.diskCache = diskCache;
+  }
+
+  public void setHeadProbing(boolean headProbing) {
+    this.headProbing = headProbing;
+  }
+
+  public void setHttp2(boolean http2) {
+    this.http2 = http2;
+  }
+
+  public void setRequestTimeout(Duration requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+}
@@ -0,0 +1,69 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the {@link FileResourceIoExecutor} running blocking file resource operations,
+ * bound to {@code resource-repository.io}.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   io:
+ *     virtual-threads: true
+ *     pool-size: 64
+ *     max-concurrency:
+ *       file: 256
+ *       http: 128
+ *       "[file:/mnt/nfs/]": 32
+ * </pre>
+ */
+@Component
+@ConfigurationProperties("resource-repository.io")
+public class FileResourceIoConfig {
+
+  private Map<String, Integer> maxConcurrency = new HashMap<>();
+  private int poolSize = 64;
+  private boolean virtualThreads = true;
+
+  /**
+   * @return maximum number of concurrent blocking calls by backend (opening, probing, listing and
+   *     scanning directories, each read of a stream or channel, asynchronous reads until they
+   *     complete; open streams are not counted between reads): keys are URI schemes ({@code file},
+   *     {@code http} for http and https, {@code classpath}, ...) or URI prefixes like {@code
+   *     file:/mnt/nfs/} (the longest matching prefix wins), backends without a limit are unbounded
+   */
+  public Map<String, Integer> getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * @return number of platform threads, used if virtual threads are disabled or not available
+   */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+   * @return true if virtual threads should be used on Java 21+
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public void setMaxConcurrency(Map<String, Integer> maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  public void setPoolSize(int poolSize) {
+    this.poolSize = poolSize;
+  }
+
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+}
@@ -0,0 +1,163 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import de.digitalcollections.model.exception.ResourceIOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared executor for blocking file resource operations: runs tasks on virtual threads (Java 21+)
+ * or a fixed pool of platform threads, see {@link FileResourceExecutors}. As virtual threads are
+ * cheap, the number of threads no longer bounds the load put on a storage. Instead, blocking
+ * operations take a permit of their backend ({@link #acquire(URI)}), bounding e.g. the concurrent
+ * accesses of an NFS mount independent of the number of threads waiting for them.
+ *
+ * <p>Permits are not reentrant, so they must not be acquired by code holding a permit already.
+ * Permits are only held during blocking calls (opening, probing, listing, reading a chunk), never
+ * while the caller holds an open stream or channel between reads, so that lookups done while
+ * consuming a stream do not wait behind it. The number of open streams is not limited.
+ */
+@Component
+public class FileResourceIoExecutor implements Executor, DisposableBean {
+
+  /** Permit of a backend, released by closing it. */
+  @FunctionalInterface
+  public interface Permit extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+
+  private static final Permit UNBOUNDED = () -> {};
+
+  private final FileResourceIoConfig config;
+  private ExecutorService executor; // created on first use, guarded by this
+  private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+  @Autowired
+  public FileResourceIoExecutor(FileResourceIoConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Wait for a permit of the backend of a resource. Backends without a configured limit return a
+   * permit immediately.
+   *
+   * @param uri URI of the resource to access
+   * @return permit to be closed after the access
+   * @throws ResourceIOException if the thread has been interrupted while waiting
+   */
+  public Permit acquire(URI uri) throws ResourceIOException {
+    Semaphore semaphore = getSemaphore(uri);
+    if (semaphore == null) {
+      return UNBOUNDED;
+    }
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResourceIOException("Interrupted while waiting for backend " + getBackend(uri), e);
+    }
+    return newPermit(semaphore);
+  }
+
+  /**
+   * @param uri URI of a resource
+   * @return true if the concurrent accesses of the backend of the resource are limited
+   */
+  public boolean isBounded(URI uri) {
+    return getSemaphore(uri) != null;
+  }
+
+  /**
+   * Take a permit of the backend of a resource if one is available without waiting, e.g. before
+   * starting an asynchronous operation on a thread that must not block.
+   *
+   * @param uri URI of the resource to access
+   * @return permit to be closed after the access or {@code null} if all permits are taken
+   */
+  public Permit tryAcquire(URI uri) {
+    Semaphore semaphore = getSemaphore(uri);
+    if (semaphore == null) {
+      return UNBOUNDED;
+    }
+    return semaphore.tryAcquire() ? newPermit(semaphore) : null;
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Run a task on a virtual thread or a thread of the pool. The task has to acquire permits for the
+   * resources it accesses itself.
+   *
+   * @param task blocking task
+   */
+  @Override
+  public void execute(Runnable task) {
+    getExecutor().execute(task);
+  }
+
+  /**
+   * @param uri URI of a resource
+   * @return name of the backend limiting the concurrent accesses of the resource: the longest
+   *     configured URI prefix matching, else the scheme ({@code https} counts as {@code http})
+   */
+  public String getBackend(URI uri) {
+    String location = uri.toString();
+    String backend = null;
+    for (String prefix : config.getMaxConcurrency().keySet()) {
+      if (prefix.indexOf(':') > 0
+          && location.startsWith(prefix)
+          && (backend == null || prefix.length() > backend.length())) {
+        backend = prefix;
+      }
+    }
+    if (backend != null) {
+      return backend;
+    }
+    String scheme = uri.getScheme() == null ? "file" : uri.getScheme().toLowerCase();
+    return "https".equals(scheme) ? "http" : scheme;
+  }
+
+  /**
+   * @return semaphore of the backend of the resource, {@code null} if the backend is unbounded
+   */
+  private Semaphore getSemaphore(URI uri) {
+    String backend = getBackend(uri);
+    Integer maxConcurrency = config.getMaxConcurrency().get(backend);
+    if (maxConcurrency == null || maxConcurrency <= 0) {
+      return null;
+    }
+    return permits.computeIfAbsent(backend, b -> new Semaphore(maxConcurrency));
+  }
+
+  private static Permit newPermit(Semaphore semaphore) {
+    AtomicBoolean released = new AtomicBoolean();
+    return () -> {
+      if (released.compareAndSet(false, true)) {
+        semaphore.release();
+      }
+    };
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor =
+          FileResourceExecutors.newBlockingIoExecutor(
+              config.isVirtualThreads(), config.getPoolSize(), "file-resource-io-");
+    }
+    return executor;
+  }
+}
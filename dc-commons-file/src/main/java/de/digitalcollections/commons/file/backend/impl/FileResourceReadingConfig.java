@@ -0,0 +1,63 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration of how binary data of file resources is read, bound to {@code
+ * resource-repository.reading}.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   reading:
+ *     memory-mapping-threshold: 4MB
+ *     batch-parallelism: 16
+ *     batch-listing-threshold: 32
+ * </pre>
+ */
+@Component
+@ConfigurationProperties("resource-repository.reading")
+public class FileResourceReadingConfig {
+
+  private int batchListingThreshold = 32;
+  private int batchParallelism = 8;
+  private DataSize memoryMappingThreshold = DataSize.ofMegabytes(1);
+
+  /**
+   * @return minimum number of candidates of a batch lookup in one directory for listing the
+   *     directory instead of probing the candidates one by one, 0 to never list; as a listing reads
+   *     the whole directory, it only pays off for a substantial part of the directory
+   */
+  public int getBatchListingThreshold() {
+    return batchListingThreshold;
+  }
+
+  public void setBatchListingThreshold(int batchListingThreshold) {
+    this.batchListingThreshold = batchListingThreshold;
+  }
+
+  /**
+   * @return maximum number of concurrent file system accesses of a batch lookup
+   */
+  public int getBatchParallelism() {
+    return batchParallelism;
+  }
+
+  public void setBatchParallelism(int batchParallelism) {
+    this.batchParallelism = batchParallelism;
+  }
+
+  /**
+   * @return minimum size of local files to be memory mapped instead of being read into the heap
+   */
+  public DataSize getMemoryMappingThreshold() {
+    return memoryMappingThreshold;
+  }
+
+  public void setMemoryMappingThreshold(DataSize memoryMappingThreshold) {
+    this.memoryMappingThreshold = memoryMappingThreshold;
+  }
+}
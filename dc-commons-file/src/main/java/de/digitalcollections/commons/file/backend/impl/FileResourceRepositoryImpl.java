@@ -1,8 +1,13 @@
 package de.digitalcollections.commons.file.backend.impl;
 
 import de.digitalcollections.commons.file.backend.FileSystemResourceIOException;
+import de.digitalcollections.commons.file.backend.api.BatchFindResult;
 import de.digitalcollections.commons.file.backend.api.FileResourceRepository;
 import de.digitalcollections.commons.file.backend.api.IdentifierToFileResourceUriResolver;
+import de.digitalcollections.commons.file.backend.impl.cache.CacheStatistics;
+import de.digitalcollections.commons.file.backend.impl.cache.EvictionPolicy;
+import de.digitalcollections.commons.file.backend.impl.cache.ExpiringCache;
+import de.digitalcollections.commons.file.backend.impl.cache.SingleFlight;
 import de.digitalcollections.model.exception.ResourceIOException;
 import de.digitalcollections.model.exception.ResourceNotFoundException;
 import de.digitalcollections.model.file.MimeType;
@@ -13,32 +18,64 @@ import de.digitalcollections.model.identifiable.resource.ImageFileResource;
 import de.digitalcollections.model.identifiable.resource.TextFileResource;
 import de.digitalcollections.model.identifiable.resource.VideoFileResource;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystemException;
+import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -55,25 +92,176 @@ import org.springframework.stereotype.Repository;
  *   <li>custom @see IdentifierToFileResourceUriResolver beans put onto the spring application
  *       context
  * </ul>
+ *
+ * <p>Successful lookups can optionally be cached (see {@link ResolutionCacheConfig}), so that
+ * repeated calls of {@link #find(String, MimeType)} for the same identifier and mimetype do not
+ * touch the file system again until the cache entry expires. In the same way identifiers that could
+ * not be resolved to a readable resource can be remembered for a (short) while, see {@link
+ * IdentifierPatternToFileResourceUriResolvingConfig#getNegativeCache()}. Use {@link
+ * #invalidate(String)} to discard cached lookups for an identifier.
  */
 @Repository
-public class FileResourceRepositoryImpl implements FileResourceRepository {
+public class FileResourceRepositoryImpl implements FileResourceRepository, DisposableBean {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FileResourceRepositoryImpl.class);
 
+  /** Key of the resolution cache. */
+  private static final class ResolutionKey {
+
+    private final String identifier;
+    private final MimeType mimeType;
+
+    ResolutionKey(String identifier, MimeType mimeType) {
+      this.identifier = identifier;
+      this.mimeType = mimeType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ResolutionKey)) {
+        return false;
+      }
+      ResolutionKey other = (ResolutionKey) o;
+      return identifier.equals(other.identifier) && mimeType.equals(other.mimeType);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(identifier, mimeType);
+    }
+  }
+
+  /** Thrown if none of the resolved URIs of an identifier points to a readable resource. */
+  private static final class UnreadableResourceException extends ResourceIOException {
+
+    UnreadableResourceException(String message) {
+      super(message);
+    }
+  }
+
+  /** Value of the resolution cache: everything that has been determined by hitting the disk. */
+  private static final class ResolvedFileResource {
+
+    private final LocalDateTime lastModified;
+    private final long sizeInBytes;
+    private final URI uri;
+
+    ResolvedFileResource(FileResource resource) {
+      this.uri = resource.getUri();
+      this.lastModified = resource.getLastModified();
+      this.sizeInBytes = resource.getSizeInBytes();
+    }
+  }
+
+  private static final Predicate<Path> MAY_EXIST = path -> true;
+
+  private final DirectoryListingCache directoryListingCache;
+  private final HttpFileResourceClient httpClient;
+  private final FileResourceIoExecutor ioExecutor;
+  private final FileResourceIoExecutor ownedIoExecutor;
+  private final DirectoryListingCache ownedDirectoryListingCache;
   private final List<IdentifierToFileResourceUriResolver> identifierToFileresourceUriResolvers;
+  private final FileResourceReadingConfig readingConfig;
   private final IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig;
   private final ResourceLoader resourceLoader;
+  private volatile IdentifierPatternDispatcher patternDispatcher;
+  private final ExpiringCache<ResolutionKey, ResolvedFileResource> resolutionCache;
+  private final ExpiringCache<ResolutionKey, Boolean> negativeCache;
+  private final SingleFlight<ResolutionKey, ResolvedFileResource> resolutions =
+      new SingleFlight<>();
   private DirectoryStream<Path> overriddenDirectoryStream; // only for testing purposes
 
-  @Autowired
+  /**
+   * Creates a directory listing cache and executor of its own, which are closed by {@link
+   * #destroy()}.
+   */
   public FileResourceRepositoryImpl(
       IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig,
       List<IdentifierToFileResourceUriResolver> identifierToFileresourceUriResolvers,
       ResourceLoader resourceLoader) {
+    this(
+        resolvedFileResourcesConfig,
+        identifierToFileresourceUriResolvers,
+        resourceLoader,
+        new FileResourceReadingConfig(),
+        new DirectoryListingCache(resolvedFileResourcesConfig),
+        new HttpFileResourceClient(new FileResourceHttpConfig()),
+        null,
+        true);
+  }
+
+  public FileResourceRepositoryImpl(
+      IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig,
+      List<IdentifierToFileResourceUriResolver> identifierToFileresourceUriResolvers,
+      ResourceLoader resourceLoader,
+      FileResourceReadingConfig readingConfig,
+      DirectoryListingCache directoryListingCache,
+      HttpFileResourceClient httpClient) {
+    this(
+        resolvedFileResourcesConfig,
+        identifierToFileresourceUriResolvers,
+        resourceLoader,
+        readingConfig,
+        directoryListingCache,
+        httpClient,
+        null,
+        false);
+  }
+
+  /**
+   * @param ioExecutor executor and per-backend concurrency limits of blocking operations, {@code
+   *     null} for an unbounded executor owned by this repository
+   */
+  @Autowired
+  public FileResourceRepositoryImpl(
+      IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig,
+      List<IdentifierToFileResourceUriResolver> identifierToFileresourceUriResolvers,
+      ResourceLoader resourceLoader,
+      FileResourceReadingConfig readingConfig,
+      DirectoryListingCache directoryListingCache,
+      HttpFileResourceClient httpClient,
+      FileResourceIoExecutor ioExecutor) {
+    this(
+        resolvedFileResourcesConfig,
+        identifierToFileresourceUriResolvers,
+        resourceLoader,
+        readingConfig,
+        directoryListingCache,
+        httpClient,
+        ioExecutor,
+        false);
+  }
+
+  private FileResourceRepositoryImpl(
+      IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig,
+      List<IdentifierToFileResourceUriResolver> identifierToFileresourceUriResolvers,
+      ResourceLoader resourceLoader,
+      FileResourceReadingConfig readingConfig,
+      DirectoryListingCache directoryListingCache,
+      HttpFileResourceClient httpClient,
+      FileResourceIoExecutor ioExecutor,
+      boolean ownsDirectoryListingCache) {
+    this.directoryListingCache = directoryListingCache;
+    this.ownedDirectoryListingCache = ownsDirectoryListingCache ? directoryListingCache : null;
+    this.httpClient = httpClient;
+    if (ioExecutor == null) {
+      this.ownedIoExecutor = new FileResourceIoExecutor(new FileResourceIoConfig());
+      this.ioExecutor = ownedIoExecutor;
+    } else {
+      this.ownedIoExecutor = null;
+      this.ioExecutor = ioExecutor;
+    }
     this.resolvedFileResourcesConfig = resolvedFileResourcesConfig;
     this.identifierToFileresourceUriResolvers = identifierToFileresourceUriResolvers;
     this.resourceLoader = resourceLoader;
+    this.readingConfig = readingConfig;
+    this.patternDispatcher =
+        new IdentifierPatternDispatcher(resolvedFileResourcesConfig.getPatterns());
+    this.resolutionCache = createCache(resolvedFileResourcesConfig.getCache());
+    this.negativeCache = createCache(resolvedFileResourcesConfig.getNegativeCache());
   }
 
   public void addIdentifierToFileresourceUriResolver(IdentifierToFileResourceUriResolver resolver) {
@@ -151,30 +339,41 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
     return result;
   }
 
+  private static <K, V> ExpiringCache<K, V> createCache(ResolutionCacheConfig cacheConfig) {
+    if (cacheConfig == null || !cacheConfig.isEnabled()) {
+      return null;
+    }
+    EvictionPolicy<K> evictionPolicy = EvictionPolicy.forName(cacheConfig.getEvictionPolicy());
+    return new ExpiringCache<>(cacheConfig.getTtl(), cacheConfig.getMaxEntries(), evictionPolicy);
+  }
+
   private List<URI> expandWildcardFilenames(List<URI> candidates) throws ResourceIOException {
     List<URI> result = new ArrayList<>();
     for (URI candidate : candidates) {
       if (candidate.getScheme().startsWith("file")) {
         String absolutePath = candidate.toString();
-        String filenamePattern = absolutePath.substring(absolutePath.lastIndexOf("/"));
+        String filenamePattern = absolutePath.substring(absolutePath.lastIndexOf("/") + 1);
         if (filenamePattern.contains("*")) {
-          try {
-            DirectoryStream<Path> directoryStream = overriddenDirectoryStream;
-            if (directoryStream == null) {
-              Path directory = Paths.get(absolutePath.substring(0, absolutePath.lastIndexOf("/")));
-              final PathMatcher matcher =
-                  FileSystems.getDefault().getPathMatcher("glob:" + filenamePattern);
-              DirectoryStream.Filter<Path> filter = matcher::matches;
-              directoryStream = Files.newDirectoryStream(directory, filter);
+          if (overriddenDirectoryStream != null) {
+            // for testability
+            StreamSupport.stream(overriddenDirectoryStream.spliterator(), false)
+                .map(Path::toUri)
+                .forEach(result::add);
+            continue;
+          }
+          Path path = toLocalPath(candidate);
+          if (path == null || path.getParent() == null) {
+            throw new ResourceIOException("Invalid URL " + candidate.toString());
+          }
+          final PathMatcher matcher =
+              FileSystems.getDefault().getPathMatcher("glob:" + filenamePattern);
+          try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(candidate)) {
+            for (Path entry : directoryListingCache.getEntries(path.getParent())) {
+              if (matcher.matches(entry.getFileName())) {
+                result.add(entry.toUri());
+              }
             }
-            List<URI> uris =
-                StreamSupport.stream(directoryStream.spliterator(), false)
-                    .map(Path::toUri)
-                    .collect(Collectors.toList());
-            result.addAll(uris);
             continue;
-          } catch (MalformedURLException ex) {
-            throw new ResourceIOException("Invalid URL " + candidate.toString(), ex);
           } catch (FileSystemException e) {
             throw new FileSystemResourceIOException(e);
           } catch (IOException ex) {
@@ -194,6 +393,136 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
     if (mimeType == null) {
       throw new ResourceIOException("missing mimetype");
     }
+    return find(identifier, mimeType, MAY_EXIST);
+  }
+
+  @Override
+  public BatchFindResult find(Collection<String> identifiers, MimeType mimeType)
+      throws ResourceIOException {
+    if (mimeType == null) {
+      throw new ResourceIOException("missing mimetype");
+    }
+    Set<String> distinctIdentifiers = new LinkedHashSet<>(identifiers);
+
+    // Directories holding many candidates (e.g. all pages of a book) are listed once, so that
+    // missing candidates can be skipped without probing each of them
+    Map<Path, Integer> candidatesByDirectory = new HashMap<>();
+    int listingThreshold = readingConfig.getBatchListingThreshold();
+    for (String identifier : distinctIdentifiers) {
+      try {
+        for (URI uri : getUris(identifier, mimeType)) {
+          Path localPath = toLocalPath(uri);
+          if (localPath != null
+              && localPath.getParent() != null
+              && !localPath.getFileName().toString().contains("*")) {
+            candidatesByDirectory.merge(localPath.getParent(), 1, Integer::sum);
+          }
+        }
+      } catch (ResourceIOException e) {
+        // reported as failure of the lookup below
+      }
+    }
+    List<Path> directories =
+        candidatesByDirectory.entrySet().stream()
+            .filter(e -> listingThreshold > 0 && e.getValue() >= listingThreshold)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    Map<Path, Set<String>> filenamesByDirectory = new ConcurrentHashMap<>();
+    runInParallel(
+        directories,
+        directory -> {
+          Set<String> filenames = listFilenames(directory);
+          if (filenames != null) {
+            filenamesByDirectory.put(directory, filenames);
+          }
+        });
+    Predicate<Path> mayExist =
+        path -> {
+          Set<String> filenames = filenamesByDirectory.get(path.getParent());
+          return filenames == null || filenames.contains(path.getFileName().toString());
+        };
+
+    Map<String, FileResource> found = new ConcurrentHashMap<>();
+    Map<String, Exception> failed = new ConcurrentHashMap<>();
+    runInParallel(
+        distinctIdentifiers,
+        identifier -> {
+          try {
+            found.put(identifier, find(identifier, mimeType, mayExist));
+          } catch (ResourceIOException | ResourceNotFoundException | RuntimeException e) {
+            failed.put(identifier, e);
+          }
+        });
+
+    // keep the order of the requested identifiers
+    Map<String, FileResource> fileResources = new LinkedHashMap<>();
+    Map<String, Exception> failures = new LinkedHashMap<>();
+    for (String identifier : distinctIdentifiers) {
+      if (found.containsKey(identifier)) {
+        fileResources.put(identifier, found.get(identifier));
+      } else {
+        failures.put(identifier, failed.get(identifier));
+      }
+    }
+    return new BatchFindResult(fileResources, failures);
+  }
+
+  private FileResource find(String identifier, MimeType mimeType, Predicate<Path> mayExist)
+      throws ResourceIOException, ResourceNotFoundException {
+    ResolutionKey key = new ResolutionKey(identifier, mimeType);
+    if (resolutionCache != null) {
+      ResolvedFileResource resolved = resolutionCache.get(key);
+      if (resolved != null) {
+        return toFileResource(mimeType, resolved);
+      }
+    }
+    if (negativeCache != null && negativeCache.get(key) != null) {
+      throw new ResourceIOException(
+          "Could not resolve identifier "
+              + identifier
+              + " with MIME type "
+              + mimeType.getTypeName()
+              + " to a readable Resource (cached)");
+    }
+    // concurrent lookups of the same identifier (e.g. a popular object) hit the disk only once,
+    // every caller gets its own FileResource instance
+    ResolvedFileResource resolved =
+        resolutions.execute(
+            key,
+            () -> {
+              FileResource resource;
+              try {
+                resource = resolve(identifier, mimeType, mayExist);
+              } catch (UnreadableResourceException e) {
+                if (mayExist == MAY_EXIST) {
+                  throw cacheMiss(key, e);
+                }
+                // a listing may be outdated (e.g. files written by another host of a network file
+                // system), so a miss is probed without it before it is cached
+                try {
+                  resource = resolve(identifier, mimeType, MAY_EXIST);
+                } catch (UnreadableResourceException again) {
+                  throw cacheMiss(key, again);
+                }
+              }
+              ResolvedFileResource result = new ResolvedFileResource(resource);
+              if (resolutionCache != null) {
+                resolutionCache.put(key, result);
+              }
+              return result;
+            });
+    return toFileResource(mimeType, resolved);
+  }
+
+  private UnreadableResourceException cacheMiss(ResolutionKey key, UnreadableResourceException e) {
+    if (negativeCache != null) {
+      negativeCache.put(key, Boolean.TRUE);
+    }
+    return e;
+  }
+
+  private FileResource resolve(String identifier, MimeType mimeType, Predicate<Path> mayExist)
+      throws ResourceIOException, ResourceNotFoundException {
     FileResource resource = createByMimeType(mimeType);
     resource.setReadonly(false);
     resource.setUuid(UUID.randomUUID());
@@ -213,13 +542,52 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
       // for testability
       resource.setUri(expandedCandidates.get(0));
     } else {
+      BasicFileAttributes fileAttributes = null;
+      HttpFileResourceClient.Metadata httpMetadata = null;
+      ResourceIOException probeFailure = null;
       for (URI u : expandedCandidates) {
         if (u.getScheme().startsWith("http")) {
-          resource.setUri(u);
-          break;
+          if (!httpClient.getConfig().isHeadProbing()) {
+            resource.setUri(u);
+            break;
+          }
+          // existence, size and timestamp with one request on a pooled connection
+          try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(u)) {
+            httpMetadata = httpClient.head(u);
+          } catch (ResourceIOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+              throw e;
+            }
+            // e.g. a server error or timeout, the next candidate may be available
+            LOGGER.warn("Could not probe {}: {}", u, e.getMessage());
+            probeFailure = e;
+            continue;
+          }
+          if (httpMetadata != null) {
+            resource.setUri(u);
+            break;
+          }
+          continue;
+        }
+        Path localPath = toLocalPath(u);
+        if (localPath != null) {
+          if (!mayExist.test(localPath)) {
+            continue;
+          }
+          // Fast path for local files: existence, size and timestamp with one stat call
+          fileAttributes = readFileAttributes(localPath);
+          if (fileAttributes != null) {
+            resource.setUri(u);
+            break;
+          }
+          continue;
         }
         Resource res = resourceLoader.getResource(u.toString());
-        if (res.isReadable()) {
+        boolean readable;
+        try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(u)) {
+          readable = res.isReadable();
+        }
+        if (readable) {
           resource.setUri(u);
           break;
         } else if (res instanceof FileSystemResource) {
@@ -239,8 +607,18 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
           }
         }
       }
-      if (resource.getUri() == null) {
+      if (resource.getUri() == null && probeFailure != null) {
+        // not cached as unresolvable, the failure may be temporary
         throw new ResourceIOException(
+            "Could not resolve identifier "
+                + identifier
+                + " with MIME type "
+                + mimeType.getTypeName()
+                + ", probing failed",
+            probeFailure);
+      }
+      if (resource.getUri() == null) {
+        throw new UnreadableResourceException(
             "Could not resolve identifier "
                 + identifier
                 + " with MIME type "
@@ -249,20 +627,36 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
                 + candidates);
       }
 
-      // test if resource exists
-      Resource springResource = resourceLoader.getResource(resource.getUri().toString());
-      long lastModified = getLastModified(springResource);
-      if (lastModified != 0) {
-        // lastmodified by code in java.io.File#lastModified (is also used in Spring's
-        // core.io.Resource) is in milliseconds!
+      if (httpMetadata != null) {
+        Instant lastModified =
+            httpMetadata.getLastModified() == null ? Instant.EPOCH : httpMetadata.getLastModified();
+        resource.setLastModified(lastModified.atOffset(ZoneOffset.UTC).toLocalDateTime());
+        if (httpMetadata.getSize() > -1) {
+          resource.setSizeInBytes(httpMetadata.getSize());
+        }
+      } else if (fileAttributes != null) {
+        // same (millisecond) precision as java.io.File#lastModified used by Spring's resources
         resource.setLastModified(
-            Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC).toLocalDateTime());
+            Instant.ofEpochMilli(fileAttributes.lastModifiedTime().toMillis())
+                .atOffset(ZoneOffset.UTC)
+                .toLocalDateTime());
+        resource.setSizeInBytes(fileAttributes.size());
       } else {
-        resource.setLastModified(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC));
-      }
-      long length = getSize(springResource);
-      if (length > -1) {
-        resource.setSizeInBytes(length);
+        // test if resource exists
+        Resource springResource = resourceLoader.getResource(resource.getUri().toString());
+        long lastModified = getLastModified(springResource);
+        if (lastModified != 0) {
+          // lastmodified by code in java.io.File#lastModified (is also used in Spring's
+          // core.io.Resource) is in milliseconds!
+          resource.setLastModified(
+              Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC).toLocalDateTime());
+        } else {
+          resource.setLastModified(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC));
+        }
+        long length = getSize(springResource);
+        if (length > -1) {
+          resource.setSizeInBytes(length);
+        }
       }
     }
     // filename
@@ -271,6 +665,43 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
     return resource;
   }
 
+  @Override
+  public ByteBuffer getAsByteBuffer(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    Path localPath = toLocalPath(resource.getUri());
+    if (localPath == null) {
+      try (InputStream is = getInputStream(resource)) {
+        return ByteBuffer.wrap(is.readAllBytes());
+      } catch (FileSystemException e) {
+        throw new FileSystemResourceIOException(e);
+      } catch (IOException e) {
+        throw new ResourceIOException("Could not read bytes from resource: " + resource, e);
+      }
+    }
+    try (FileChannel channel = openFileChannel(localPath);
+        FileResourceIoExecutor.Permit permit = ioExecutor.acquire(localPath.toUri())) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new ResourceIOException(
+            "Resource " + resource.getUri() + " is too large for a single ByteBuffer: " + size);
+      }
+      if (size >= readingConfig.getMemoryMappingThreshold().toBytes()) {
+        // mapping stays valid after the channel has been closed
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // read until buffer is full or file has been truncated meanwhile
+      }
+      buffer.flip();
+      return buffer;
+    } catch (FileSystemException e) {
+      throw new FileSystemResourceIOException(e);
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not read bytes from resource: " + resource, e);
+    }
+  }
+
   @Override
   public InputStream getInputStream(FileResource resource)
       throws ResourceIOException, ResourceNotFoundException {
@@ -285,11 +716,20 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("Getting inputstream for location '{}'.", location);
       }
-      final Resource resource = resourceLoader.getResource(location);
-      if (!resourceUri.getScheme().startsWith("http") && !resource.exists()) {
-        throw new ResourceNotFoundException("Resource not found at location '" + location + "'");
+      InputStream is;
+      try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(resourceUri)) {
+        if (resourceUri.getScheme().startsWith("http")) {
+          is = httpClient.getInputStream(resourceUri);
+        } else {
+          final Resource resource = resourceLoader.getResource(location);
+          if (!resource.exists()) {
+            throw new ResourceNotFoundException(
+                "Resource not found at location '" + location + "'");
+          }
+          is = resource.getInputStream();
+        }
       }
-      return resource.getInputStream();
+      return withPermits(is, resourceUri);
     } catch (FileSystemException e) {
       throw new FileSystemResourceIOException(e);
     } catch (IOException e) {
@@ -297,6 +737,65 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
     }
   }
 
+  @Override
+  public InputStream getInputStream(FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    checkRange(offset, length);
+    if (length == 0) {
+      // "bytes=N-(N-1)" would be an invalid range
+      return InputStream.nullInputStream();
+    }
+    URI uri = resource.getUri();
+    if (toLocalPath(uri) != null) {
+      return Channels.newInputStream(getReadableByteChannel(resource, offset, length));
+    }
+    InputStream is;
+    if (uri.getScheme().startsWith("http")) {
+      try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(uri)) {
+        is = httpClient.getInputStream(uri, offset, length);
+      }
+      if (is != null) {
+        is = withPermits(is, uri);
+      }
+    } else {
+      is = getInputStream(uri);
+    }
+    try {
+      if (is == null) {
+        return InputStream.nullInputStream();
+      }
+      if (!uri.getScheme().startsWith("http")) {
+        IOUtils.skip(is, offset);
+      }
+      return BoundedInputStream.builder().setInputStream(is).setMaxCount(length).get();
+    } catch (IOException e) {
+      IOUtils.closeQuietly(is);
+      throw new ResourceIOException("Could not read " + uri, e);
+    }
+  }
+
+  @Override
+  public ReadableByteChannel getReadableByteChannel(FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    checkRange(offset, length);
+    Path localPath = toLocalPath(resource.getUri());
+    if (localPath == null) {
+      return Channels.newChannel(getInputStream(resource, offset, length));
+    }
+    FileChannel channel = null;
+    try {
+      channel = openFileChannel(localPath);
+      channel.position(offset);
+      return withPermits(new BoundedReadableByteChannel(channel, length), localPath.toUri());
+    } catch (IOException e) {
+      IOUtils.closeQuietly(channel);
+      if (e instanceof FileSystemException) {
+        throw new FileSystemResourceIOException(e);
+      }
+      throw new ResourceIOException("Could not read " + resource.getUri(), e);
+    }
+  }
+
   protected long getLastModified(Resource springResource) throws FileSystemResourceIOException {
     try {
       return springResource.lastModified();
@@ -320,6 +819,229 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
     return new InputStreamReader(this.getInputStream(resource));
   }
 
+  @Override
+  public CompletableFuture<ByteBuffer> readAsync(FileResource resource) {
+    URI uri = resource.getUri();
+    Path localPath = toLocalPath(uri);
+    if (localPath != null) {
+      return readWithPermit(uri, () -> readAsync(localPath));
+    }
+    if (uri.getScheme().startsWith("http")) {
+      return readWithPermit(uri, () -> httpClient.getAsync(uri));
+    }
+    // e.g. "classpath:" resources can only be read by blocking streams
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    try {
+      ioExecutor.execute(
+          () -> {
+            try {
+              future.complete(getAsByteBuffer(resource));
+            } catch (Throwable e) {
+              future.completeExceptionally(e);
+            }
+          });
+    } catch (RuntimeException e) {
+      // e.g. RejectedExecutionException after shutdown
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Start an asynchronous read holding a permit of the backend until the read has completed. If no
+   * permit is available, it is waited for on the I/O executor, so the caller is never blocked.
+   */
+  private CompletableFuture<ByteBuffer> readWithPermit(
+      URI uri, Supplier<CompletableFuture<ByteBuffer>> read) {
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    FileResourceIoExecutor.Permit permit = ioExecutor.tryAcquire(uri);
+    if (permit != null) {
+      startWithPermit(read, permit, future);
+      return future;
+    }
+    try {
+      ioExecutor.execute(
+          () -> {
+            try {
+              startWithPermit(read, ioExecutor.acquire(uri), future);
+            } catch (ResourceIOException e) {
+              future.completeExceptionally(e);
+            }
+          });
+    } catch (RuntimeException e) {
+      // e.g. RejectedExecutionException after shutdown
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  private static void startWithPermit(
+      Supplier<CompletableFuture<ByteBuffer>> read,
+      FileResourceIoExecutor.Permit permit,
+      CompletableFuture<ByteBuffer> future) {
+    try {
+      read.get()
+          .whenComplete(
+              (buffer, e) -> {
+                permit.close();
+                if (e != null) {
+                  future.completeExceptionally(e);
+                } else {
+                  future.complete(buffer);
+                }
+              });
+    } catch (RuntimeException e) {
+      permit.close();
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Read a local file by an {@link AsynchronousFileChannel}, continuing with the next read in the
+   * completion handler of the former one until the buffer is full or the file has been truncated.
+   */
+  private static CompletableFuture<ByteBuffer> readAsync(Path path) {
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    AsynchronousFileChannel channel;
+    ByteBuffer buffer;
+    try {
+      channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      future.completeExceptionally(
+          new ResourceNotFoundException("Resource not found at location '" + path + "'"));
+      return future;
+    } catch (FileSystemException e) {
+      future.completeExceptionally(new FileSystemResourceIOException(e));
+      return future;
+    } catch (IOException e) {
+      future.completeExceptionally(new ResourceIOException("Could not read " + path, e));
+      return future;
+    }
+    try {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("File is too large for a single ByteBuffer: " + size);
+      }
+      buffer = ByteBuffer.allocate((int) size);
+    } catch (IOException e) {
+      IOUtils.closeQuietly(channel);
+      future.completeExceptionally(new ResourceIOException("Could not read " + path, e));
+      return future;
+    }
+    channel.read(
+        buffer,
+        0,
+        null,
+        new CompletionHandler<Integer, Void>() {
+          @Override
+          public void completed(Integer count, Void attachment) {
+            if (count >= 0 && buffer.hasRemaining()) {
+              channel.read(buffer, buffer.position(), null, this);
+              return;
+            }
+            IOUtils.closeQuietly(channel);
+            buffer.flip();
+            future.complete(buffer);
+          }
+
+          @Override
+          public void failed(Throwable e, Void attachment) {
+            IOUtils.closeQuietly(channel);
+            future.completeExceptionally(
+                e instanceof FileSystemException
+                    ? new FileSystemResourceIOException(e)
+                    : new ResourceIOException("Could not read " + path, e));
+          }
+        });
+    return future;
+  }
+
+  /**
+   * @return number of lookups that have shared the resolution of a concurrent lookup of the same
+   *     identifier and MIME type
+   */
+  public long getCoalescedFindCount() {
+    return resolutions.getSharedCount();
+  }
+
+  /**
+   * @return counters of the directory listing cache, all zero if caching is disabled
+   */
+  public CacheStatistics getDirectoryListingCacheStatistics() {
+    return directoryListingCache.getStatistics();
+  }
+
+  /**
+   * @return counters of the negative lookup cache, all zero if caching is disabled
+   */
+  public CacheStatistics getNegativeCacheStatistics() {
+    return negativeCache == null ? CacheStatistics.EMPTY : negativeCache.getStatistics();
+  }
+
+  /**
+   * @return counters of the resolution cache, all zero if caching is disabled
+   */
+  public CacheStatistics getResolutionCacheStatistics() {
+    return resolutionCache == null ? CacheStatistics.EMPTY : resolutionCache.getStatistics();
+  }
+
+  /**
+   * Read the basic attributes of a local file. Missing files, directories and files that can not be
+   * read are reported as {@code null}, so that the next candidate can be tried. Low-level I/O
+   * errors (e.g. an unavailable network share) are thrown.
+   *
+   * @param path path of the file
+   * @return attributes of the file or {@code null} if it is not a readable file
+   * @throws FileSystemResourceIOException if the attributes can not be read due to an I/O error
+   * @throws ResourceIOException if interrupted while waiting for a permit of the backend
+   */
+  private BasicFileAttributes readFileAttributes(Path path) throws ResourceIOException {
+    BasicFileAttributes attributes;
+    try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(path.toUri())) {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      if (attributes.isDirectory() || !Files.isReadable(path)) {
+        return null;
+      }
+    } catch (NoSuchFileException | NotDirectoryException | AccessDeniedException e) {
+      return null;
+    } catch (FileSystemException e) {
+      throw new FileSystemResourceIOException(e);
+    } catch (ResourceIOException e) {
+      // interrupted while waiting for a permit
+      throw e;
+    } catch (IOException e) {
+      return null;
+    }
+    return attributes;
+  }
+
+  private FileResource toFileResource(MimeType mimeType, ResolvedFileResource resolved) {
+    FileResource resource = createByMimeType(mimeType);
+    resource.setReadonly(false);
+    resource.setUuid(UUID.randomUUID());
+    resource.setUri(resolved.uri);
+    resource.setLastModified(resolved.lastModified);
+    resource.setSizeInBytes(resolved.sizeInBytes);
+    resource.setFilename(FilenameUtils.getName(resolved.uri.getPath()));
+    return resource;
+  }
+
+  /**
+   * @param uri URI of a resource
+   * @return path on the default file system for {@code file:} URIs, {@code null} for other URIs
+   */
+  static Path toLocalPath(URI uri) {
+    if (!"file".equalsIgnoreCase(uri.getScheme())) {
+      return null;
+    }
+    try {
+      return Paths.get(uri);
+    } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+      // e.g. relative "file:" URIs, let Spring handle them
+      return null;
+    }
+  }
+
   private long getSize(Resource springResource) throws FileSystemResourceIOException {
     try {
       long length = springResource.contentLength();
@@ -332,17 +1054,165 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
     return -1;
   }
 
-  private List<URI> getUris(String identifier, MimeType mimeType) throws ResourceIOException {
-    // first: try to resolve by patterns (if configured)
+  /**
+   * Permits are only held while a read blocks, not while a stream is open: the caller may access
+   * the repository again between reads (e.g. while parsing), which would deadlock with
+   * non-reentrant permits held by its open streams.
+   *
+   * @return stream taking a permit of the backend for every read
+   */
+  private InputStream withPermits(InputStream is, URI uri) {
+    if (!ioExecutor.isBounded(uri)) {
+      return is;
+    }
+    return new FilterInputStream(is) {
+      @Override
+      public int read() throws IOException {
+        try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(uri)) {
+          return in.read();
+        }
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(uri)) {
+          return in.read(b, off, len);
+        }
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(uri)) {
+          return in.skip(n);
+        }
+      }
+    };
+  }
+
+  /**
+   * @return channel taking a permit of the backend for every read, see {@link
+   *     #withPermits(InputStream, URI)}
+   */
+  private ReadableByteChannel withPermits(ReadableByteChannel channel, URI uri) {
+    if (!ioExecutor.isBounded(uri)) {
+      return channel;
+    }
+    return new ReadableByteChannel() {
+      @Override
+      public void close() throws IOException {
+        channel.close();
+      }
+
+      @Override
+      public boolean isOpen() {
+        return channel.isOpen();
+      }
+
+      @Override
+      public int read(ByteBuffer dst) throws IOException {
+        try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(uri)) {
+          return channel.read(dst);
+        }
+      }
+    };
+  }
+
+  private static void checkRange(long offset, long length) {
+    if (offset < 0) {
+      throw new IllegalArgumentException("offset must not be negative, but was " + offset);
+    }
+    if (length < -1) {
+      throw new IllegalArgumentException("length must be -1 or non-negative, but was " + length);
+    }
+  }
+
+  /**
+   * Open a local file for reading, holding a permit of its backend while opening.
+   *
+   * @param path path of a local file
+   * @return channel opened for reading
+   * @throws ResourceNotFoundException if the file does not exist
+   * @throws IOException if the file can not be opened
+   */
+  private FileChannel openFileChannel(Path path) throws ResourceNotFoundException, IOException {
+    try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(path.toUri())) {
+      return FileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      throw new ResourceNotFoundException("Resource not found at location '" + path + "'");
+    }
+  }
+
+  /**
+   * @return names of the files in the directory, an empty set if there is no such directory or null
+   *     if it can not be listed
+   */
+  private Set<String> listFilenames(Path directory) {
+    try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(directory.toUri())) {
+      return directoryListingCache.getEntries(directory).stream()
+          .map(path -> path.getFileName().toString())
+          .collect(Collectors.toSet());
+    } catch (NoSuchFileException | NotDirectoryException e) {
+      return Collections.emptySet();
+    } catch (IOException e) {
+      // probe the files one by one
+      LOGGER.debug("Can not list directory {}", directory, e);
+      return null;
+    }
+  }
+
+  /** Runs the task for every item with at most batch-parallelism tasks in flight. */
+  private <T> void runInParallel(Collection<T> items, Consumer<T> task) throws ResourceIOException {
+    if (items.size() <= 1) {
+      items.forEach(task);
+      return;
+    }
+    Semaphore permits = new Semaphore(Math.max(1, readingConfig.getBatchParallelism()));
+    List<Future<?>> futures = new ArrayList<>(items.size());
+    try {
+      for (T item : items) {
+        permits.acquire();
+        FutureTask<Void> future =
+            new FutureTask<>(
+                () -> {
+                  try {
+                    task.accept(item);
+                  } finally {
+                    permits.release();
+                  }
+                },
+                null);
+        futures.add(future);
+        ioExecutor.execute(future);
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      futures.forEach(f -> f.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new ResourceIOException("Interrupted while looking up file resources", e);
+    } catch (ExecutionException e) {
+      throw new ResourceIOException("Looking up file resources failed", e.getCause());
+    }
+  }
+
+  private IdentifierPatternDispatcher getPatternDispatcher() {
+    IdentifierPatternDispatcher dispatcher = patternDispatcher;
     List<IdentifierPatternToFileResourceUriResolverImpl> patterns =
         resolvedFileResourcesConfig.getPatterns();
-    Optional<IdentifierPatternToFileResourceUriResolverImpl> patternFileNameResolverImpl =
-        patterns.stream()
-            .filter(r -> r.isResolvable(identifier))
-            .findFirst(); // TODO: why only the first? See below method collectiong from all
-    // resolvers...
-    if (patternFileNameResolverImpl.isPresent()) {
-      return patternFileNameResolverImpl.get().getUris(identifier, mimeType);
+    if (!dispatcher.isCompiledFrom(patterns)) {
+      dispatcher = new IdentifierPatternDispatcher(patterns);
+      patternDispatcher = dispatcher;
+    }
+    return dispatcher;
+  }
+
+  private List<URI> getUris(String identifier, MimeType mimeType) throws ResourceIOException {
+    // first: try to resolve by patterns (if configured)
+    IdentifierPatternToFileResourceUriResolverImpl patternFileNameResolverImpl =
+        getPatternDispatcher().findFirst(identifier);
+    if (patternFileNameResolverImpl != null) {
+      return patternFileNameResolverImpl.getUris(identifier, mimeType);
     }
 
     // second: try to resolve by custom resolvers:
@@ -359,8 +1229,7 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
 
   public List<String> getUrisAsString(String identifier) throws ResourceIOException {
     List<String> uris =
-        resolvedFileResourcesConfig.getPatterns().stream()
-            .filter(r -> r.isResolvable(identifier))
+        getPatternDispatcher().findAll(identifier).stream()
             .map(r -> r.getUrisAsStrings(identifier))
             .flatMap(Collection::stream)
             .collect(Collectors.toList());
@@ -374,6 +1243,82 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
     return uris;
   }
 
+  @Override
+  public void invalidate(String identifier) {
+    if (resolutionCache != null) {
+      resolutionCache.invalidateIf(k -> k.identifier.equals(identifier));
+    }
+    if (negativeCache != null) {
+      negativeCache.invalidateIf(k -> k.identifier.equals(identifier));
+    }
+  }
+
+  @Override
+  public long transferTo(FileResource resource, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    return transferTo(resource, 0, -1, target);
+  }
+
+  @Override
+  public long transferTo(
+      FileResource resource, long offset, long length, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    checkRange(offset, length);
+    Path localPath = toLocalPath(resource.getUri());
+    if (localPath == null) {
+      try (InputStream is = getInputStream(resource, offset, length)) {
+        return is.transferTo(Channels.newOutputStream(target));
+      } catch (FileSystemException e) {
+        throw new FileSystemResourceIOException(e);
+      } catch (IOException e) {
+        throw new ResourceIOException("Could not transfer " + resource.getUri(), e);
+      }
+    }
+    // no permit while transferring, the target may block on a slow client
+    try (FileChannel channel = openFileChannel(localPath)) {
+      long end = length < 0 ? channel.size() : Math.min(channel.size(), offset + length);
+      long position = offset;
+      while (position < end) {
+        long transferred = channel.transferTo(position, end - position, target);
+        if (transferred <= 0) {
+          // file has been truncated meanwhile or target does not accept any more data
+          break;
+        }
+        position += transferred;
+      }
+      return Math.max(0, position - offset);
+    } catch (FileSystemException e) {
+      throw new FileSystemResourceIOException(e);
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not transfer " + resource.getUri(), e);
+    }
+  }
+
+  @Override
+  public long transferTo(FileResource resource, OutputStream target)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (toLocalPath(resource.getUri()) != null) {
+      return transferTo(resource, Channels.newChannel(target));
+    }
+    try (InputStream is = getInputStream(resource)) {
+      return is.transferTo(target);
+    } catch (FileSystemException e) {
+      throw new FileSystemResourceIOException(e);
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not transfer " + resource.getUri(), e);
+    }
+  }
+
+  @Override
+  public synchronized void destroy() throws IOException {
+    if (ownedIoExecutor != null) {
+      ownedIoExecutor.destroy();
+    }
+    if (ownedDirectoryListingCache != null) {
+      ownedDirectoryListingCache.destroy();
+    }
+  }
+
   protected void overrideDirectoryStream(DirectoryStream<Path> overriddenDirectoryStream) {
     this.overriddenDirectoryStream = overriddenDirectoryStream;
   }
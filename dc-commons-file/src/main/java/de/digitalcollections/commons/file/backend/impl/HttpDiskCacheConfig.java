@@ -0,0 +1,74 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.time.Duration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration of the local disk copies of {@code http(s)} file resources kept by {@link
+ * DiskCachingFileResourceRepository}, bound to {@code resource-repository.http.disk-cache}.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   http:
+ *     disk-cache:
+ *       directory: /var/cache/my-app/http
+ *       max-size: 10GB
+ *       revalidate-after: 5m
+ *       stale-if-error: true
+ * </pre>
+ */
+public class HttpDiskCacheConfig {
+
+  private String directory = System.getProperty("java.io.tmpdir") + "/dc-commons-file-http-cache";
+  private DataSize maxSize = DataSize.ofGigabytes(1);
+  private Duration revalidateAfter = Duration.ofMinutes(1);
+  private boolean staleIfError = true;
+
+  /**
+   * @return directory the copies are stored in, kept across restarts
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return maximum total size of the copies, least recently used copies are deleted beyond it.
+   *     Larger resources are not cached at all, they are read from the server directly until
+   *     revalidation is due.
+   */
+  public DataSize getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return time a copy is served without asking the server whether the resource has been modified
+   */
+  public Duration getRevalidateAfter() {
+    return revalidateAfter;
+  }
+
+  /**
+   * @return true if a copy is served when the server can not be reached for revalidating it
+   */
+  public boolean isStaleIfError() {
+    return staleIfError;
+  }
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public void setMaxSize(DataSize maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public void setRevalidateAfter(Duration revalidateAfter) {
+    this.revalidateAfter = revalidateAfter;
+  }
+
+  public void setStaleIfError(boolean staleIfError) {
+    this.staleIfError = staleIfError;
+  }
+}
@@ -0,0 +1,351 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import de.digitalcollections.model.exception.ResourceIOException;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Access to {@code http(s)} file resources by a shared {@link HttpClient}, which keeps connections
+ * alive and reuses them (including HTTP/2 multiplexing), so that only the first request to a host
+ * pays for the TCP and TLS handshake.
+ */
+@Component
+public class HttpFileResourceClient {
+
+  /** Content of a http(s) resource together with the metadata of the response. */
+  public static class Download {
+
+    private final InputStream body;
+    private final Metadata metadata;
+
+    public Download(Metadata metadata, InputStream body) {
+      this.metadata = metadata;
+      this.body = body;
+    }
+
+    /**
+     * @return content of the resource, to be closed by the caller
+     */
+    public InputStream getBody() {
+      return body;
+    }
+
+    public Metadata getMetadata() {
+      return metadata;
+    }
+  }
+
+  /** Metadata of a http(s) resource as returned by a HEAD request. */
+  public static class Metadata {
+
+    private final String etag;
+    private final Instant lastModified;
+    private final long size;
+
+    public Metadata(long size, Instant lastModified, String etag) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.etag = etag;
+    }
+
+    /**
+     * @return value of the ETag header or null
+     */
+    public String getEtag() {
+      return etag;
+    }
+
+    /**
+     * @return value of the Last-Modified header or null
+     */
+    public Instant getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * @return value of the Content-Length header or -1
+     */
+    public long getSize() {
+      return size;
+    }
+  }
+
+  private static final int HTTP_BAD_METHOD = 405;
+  private static final int HTTP_GONE = 410;
+  private static final int HTTP_NOT_IMPLEMENTED = 501;
+  private static final int HTTP_NOT_MODIFIED = 304;
+  private static final int HTTP_NOT_FOUND = 404;
+  private static final int HTTP_PARTIAL = 206;
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+  private final HttpClient client;
+  private final FileResourceHttpConfig config;
+
+  @Autowired
+  public HttpFileResourceClient(FileResourceHttpConfig config) {
+    this.config = config;
+    this.client =
+        HttpClient.newBuilder()
+            .version(config.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .connectTimeout(config.getConnectTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+  }
+
+  private static void checkStatus(HttpResponse<?> response)
+      throws ResourceIOException, ResourceNotFoundException {
+    int status = response.statusCode();
+    if (status == HTTP_NOT_FOUND || status == HTTP_GONE) {
+      throw new ResourceNotFoundException(
+          "Resource not found at location '" + response.uri() + "'");
+    }
+    if (status >= 400) {
+      throw new ResourceIOException("Got HTTP status " + status + " for " + response.uri());
+    }
+  }
+
+  /**
+   * Request a resource without blocking the calling thread.
+   *
+   * @param uri http(s) URI of the resource
+   * @return future of the content, completing exceptionally with a {@link ResourceIOException} if
+   *     the request fails or a {@link ResourceNotFoundException} if the resource does not exist
+   */
+  public CompletableFuture<ByteBuffer> getAsync(URI uri) {
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    client
+        .sendAsync(newRequest(uri).GET().build(), HttpResponse.BodyHandlers.ofByteArray())
+        .whenComplete(
+            (response, error) -> {
+              if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                future.completeExceptionally(
+                    new ResourceIOException("Could not request " + uri, cause));
+                return;
+              }
+              try {
+                checkStatus(response);
+                future.complete(ByteBuffer.wrap(response.body()));
+              } catch (ResourceIOException | ResourceNotFoundException e) {
+                future.completeExceptionally(e);
+              }
+            });
+    return future;
+  }
+
+  public FileResourceHttpConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * @param uri http(s) URI of the resource
+   * @return stream of the content
+   * @throws ResourceIOException if the request fails
+   * @throws ResourceNotFoundException if the resource does not exist
+   */
+  public InputStream getInputStream(URI uri) throws ResourceIOException, ResourceNotFoundException {
+    HttpResponse<InputStream> response = send(newRequest(uri).GET().build());
+    try {
+      checkStatus(response);
+    } catch (ResourceIOException | ResourceNotFoundException e) {
+      IOUtils.closeQuietly(response.body());
+      throw e;
+    }
+    return response.body();
+  }
+
+  /**
+   * Request a resource unless it is unchanged compared to a copy fetched before. The server decides
+   * by the ETag of the copy ({@code If-None-Match}) or, if it has none, by its last modification
+   * ({@code If-Modified-Since}).
+   *
+   * @param uri http(s) URI of the resource
+   * @param cached metadata of the copy fetched before, {@code null} for an unconditional request
+   * @return content and metadata of the resource or {@code null} if it has not been modified
+   * @throws ResourceIOException if the request fails
+   * @throws ResourceNotFoundException if the resource does not exist (anymore)
+   */
+  public Download getIfModified(URI uri, Metadata cached)
+      throws ResourceIOException, ResourceNotFoundException {
+    HttpRequest.Builder request = newRequest(uri).GET();
+    if (cached != null && cached.getEtag() != null) {
+      request.header("If-None-Match", cached.getEtag());
+    } else if (cached != null && cached.getLastModified() != null) {
+      request.header(
+          "If-Modified-Since",
+          DateTimeFormatter.RFC_1123_DATE_TIME.format(
+              cached.getLastModified().atZone(ZoneOffset.UTC)));
+    }
+    HttpResponse<InputStream> response = send(request.build());
+    try {
+      if (response.statusCode() == HTTP_NOT_MODIFIED) {
+        response.body().close();
+        return null;
+      }
+      checkStatus(response);
+    } catch (ResourceIOException | ResourceNotFoundException e) {
+      IOUtils.closeQuietly(response.body());
+      throw e;
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not read " + uri, e);
+    }
+    return new Download(getMetadata(response.headers()), response.body());
+  }
+
+  /**
+   * Open an input stream positioned at the offset of a resource. Servers not supporting range
+   * requests answer with the full content, which is skipped up to the offset then. The stream may
+   * be longer than the requested length.
+   *
+   * @param uri http(s) URI of the resource
+   * @param offset position of the first byte
+   * @param length number of bytes, -1 for all bytes up to the end
+   * @return positioned stream or {@code null} if offset is beyond the end of the resource, an empty
+   *     stream without any request if length is 0
+   * @throws ResourceIOException if the request fails
+   * @throws ResourceNotFoundException if the resource does not exist
+   */
+  public InputStream getInputStream(URI uri, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (length == 0) {
+      // there is no range header for zero bytes
+      return InputStream.nullInputStream();
+    }
+    HttpRequest request =
+        newRequest(uri)
+            .header(
+                "Range",
+                "bytes=" + offset + "-" + (length < 0 ? "" : String.valueOf(offset + length - 1)))
+            .GET()
+            .build();
+    HttpResponse<InputStream> response = send(request);
+    InputStream is = response.body();
+    try {
+      if (response.statusCode() == HTTP_RANGE_NOT_SATISFIABLE) {
+        // offset is beyond the end
+        is.close();
+        return null;
+      }
+      checkStatus(response);
+      if (response.statusCode() != HTTP_PARTIAL && IOUtils.skip(is, offset) < offset) {
+        is.close();
+        return null;
+      }
+      return is;
+    } catch (ResourceIOException | ResourceNotFoundException e) {
+      IOUtils.closeQuietly(is);
+      throw e;
+    } catch (IOException e) {
+      IOUtils.closeQuietly(is);
+      throw new ResourceIOException("Could not read " + uri, e);
+    }
+  }
+
+  /**
+   * Request the metadata of a resource by a HEAD request. Servers not supporting HEAD ({@code 405},
+   * {@code 501}) are asked by a GET request for the first byte instead.
+   *
+   * @param uri http(s) URI of the resource
+   * @return metadata of the resource or {@code null} if it does not exist
+   * @throws ResourceIOException if the request fails
+   */
+  public Metadata head(URI uri) throws ResourceIOException {
+    HttpResponse<Void> response =
+        send(
+            newRequest(uri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+            HttpResponse.BodyHandlers.discarding());
+    if (response.statusCode() == HTTP_BAD_METHOD || response.statusCode() == HTTP_NOT_IMPLEMENTED) {
+      return headByRangeRequest(uri);
+    }
+    try {
+      checkStatus(response);
+    } catch (ResourceNotFoundException e) {
+      return null;
+    }
+    return getMetadata(response.headers());
+  }
+
+  private Metadata headByRangeRequest(URI uri) throws ResourceIOException {
+    HttpResponse<InputStream> response =
+        send(newRequest(uri).header("Range", "bytes=0-0").GET().build());
+    // a server ignoring the range sends the whole content, which is not read
+    IOUtils.closeQuietly(response.body());
+    if (response.statusCode() == HTTP_RANGE_NOT_SATISFIABLE) {
+      // not even the first byte, i.e. an empty resource
+      return new Metadata(0, getMetadata(response.headers()).getLastModified(), null);
+    }
+    try {
+      checkStatus(response);
+    } catch (ResourceNotFoundException e) {
+      return null;
+    }
+    Metadata metadata = getMetadata(response.headers());
+    if (response.statusCode() != HTTP_PARTIAL) {
+      return metadata;
+    }
+    // Content-Length is the length of the range, the total size is in "bytes 0-0/1234"
+    long size =
+        response
+            .headers()
+            .firstValue("Content-Range")
+            .map(range -> range.substring(range.lastIndexOf('/') + 1))
+            .filter(total -> total.matches("\\d+"))
+            .map(Long::parseLong)
+            .orElse(-1L);
+    return new Metadata(size, metadata.getLastModified(), metadata.getEtag());
+  }
+
+  private Metadata getMetadata(HttpHeaders headers) {
+    OptionalLong size = headers.firstValueAsLong("Content-Length");
+    Optional<String> etag = headers.firstValue("ETag");
+    Instant lastModified = headers.firstValue("Last-Modified").map(this::parseDate).orElse(null);
+    return new Metadata(size.orElse(-1), lastModified, etag.orElse(null));
+  }
+
+  private HttpRequest.Builder newRequest(URI uri) {
+    return HttpRequest.newBuilder(uri).timeout(config.getRequestTimeout());
+  }
+
+  private Instant parseDate(String date) {
+    try {
+      return ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  private HttpResponse<InputStream> send(HttpRequest request) throws ResourceIOException {
+    return send(request, HttpResponse.BodyHandlers.ofInputStream());
+  }
+
+  private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+      throws ResourceIOException {
+    try {
+      return client.send(request, bodyHandler);
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not request " + request.uri(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResourceIOException("Interrupted while requesting " + request.uri(), e);
+    }
+  }
+}
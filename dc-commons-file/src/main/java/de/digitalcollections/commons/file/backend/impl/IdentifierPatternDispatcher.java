@@ -0,0 +1,348 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Selects the resolvers of a list of {@link IdentifierPatternToFileResourceUriResolverImpl}s that
+ * are able to resolve a given identifier, without running the regular expression of every resolver.
+ *
+ * <p>On construction each pattern is analyzed once: if it starts with a literal prefix (e.g. {@code
+ * news_(\d{8})}) or with a simple character class (e.g. {@code ^(\w{3})(\d{4})}), the pattern can
+ * only match identifiers starting with that prefix or character. For every ASCII character the list
+ * of patterns that may match an identifier starting with it is precomputed, so at lookup time only
+ * these few candidates have to be matched by regex. Patterns that can not be analyzed
+ * (alternations, optional first elements, inline flags, ...) are always candidates.
+ *
+ * <p>Candidates are tested in configuration order, so the first-match semantics of a linear scan
+ * are kept. A dispatcher is a snapshot of the resolvers and their patterns; use {@link
+ * #isCompiledFrom(List)} to detect changes of the configuration.
+ */
+public class IdentifierPatternDispatcher {
+
+  /** Conservative description of what the first characters of a matching identifier can be. */
+  private static final class PatternIndex {
+
+    /** Allowed first characters, {@code null} if unknown (any character may match). */
+    private BitSet firstChars;
+
+    /** Literal prefix of all matching identifiers, may be empty. */
+    private String prefix = "";
+
+    boolean accepts(char c) {
+      return firstChars == null || firstChars.get(c);
+    }
+  }
+
+  private static final int ASCII = 128;
+
+  private final int[][] candidatesByAsciiChar = new int[ASCII][];
+  private final PatternIndex[] indexes;
+  private final List<String> patterns;
+  private final List<IdentifierPatternToFileResourceUriResolverImpl> resolvers;
+
+  /**
+   * @param resolvers configured resolvers in order of precedence, may be {@code null}
+   */
+  public IdentifierPatternDispatcher(
+      List<IdentifierPatternToFileResourceUriResolverImpl> resolvers) {
+    this.resolvers = resolvers == null ? Collections.emptyList() : new ArrayList<>(resolvers);
+    this.patterns = new ArrayList<>(this.resolvers.size());
+    this.indexes = new PatternIndex[this.resolvers.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      String pattern = this.resolvers.get(i).getPattern();
+      patterns.add(pattern);
+      indexes[i] = analyze(pattern);
+    }
+    for (char c = 0; c < ASCII; c++) {
+      candidatesByAsciiChar[c] = computeCandidates(c);
+    }
+  }
+
+  private static PatternIndex analyze(String regex) {
+    PatternIndex index = new PatternIndex();
+    if (regex == null || regex.indexOf('|') >= 0) {
+      return index;
+    }
+    int pos = regex.startsWith("^") ? 1 : 0;
+    index.prefix = literalPrefix(regex, pos);
+    if (!index.prefix.isEmpty()) {
+      index.firstChars = new BitSet();
+      index.firstChars.set(index.prefix.charAt(0));
+    } else {
+      index.firstChars = firstChars(regex, pos);
+    }
+    return index;
+  }
+
+  private int[] computeCandidates(char c) {
+    int[] candidates = new int[indexes.length];
+    int count = 0;
+    for (int i = 0; i < indexes.length; i++) {
+      if (indexes[i].accepts(c)) {
+        candidates[count++] = i;
+      }
+    }
+    int[] result = new int[count];
+    System.arraycopy(candidates, 0, result, 0, count);
+    return result;
+  }
+
+  /**
+   * @param identifier file identifier/resolving key
+   * @return all resolvers able to resolve the identifier, in configuration order
+   */
+  public List<IdentifierPatternToFileResourceUriResolverImpl> findAll(String identifier) {
+    List<IdentifierPatternToFileResourceUriResolverImpl> result = new ArrayList<>();
+    for (int i : getCandidates(identifier)) {
+      if (matches(i, identifier)) {
+        result.add(resolvers.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param identifier file identifier/resolving key
+   * @return first resolver able to resolve the identifier or {@code null} if there is none
+   */
+  public IdentifierPatternToFileResourceUriResolverImpl findFirst(String identifier) {
+    for (int i : getCandidates(identifier)) {
+      if (matches(i, identifier)) {
+        return resolvers.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Parse the first element of a regular expression and return the set of characters it can match,
+   * or {@code null} if that can not be determined safely.
+   */
+  private static BitSet firstChars(String regex, int pos) {
+    if (pos >= regex.length()) {
+      return null;
+    }
+    char c = regex.charAt(pos);
+    BitSet chars;
+    int end;
+    if (c == '(') {
+      int contentStart = pos + 1;
+      if (regex.startsWith("?:", contentStart)) {
+        contentStart += 2;
+      } else if (regex.startsWith("?", contentStart)) {
+        // lookarounds, inline flags, named groups, ...
+        return null;
+      }
+      end = skipGroup(regex, pos);
+      if (end < 0) {
+        return null;
+      }
+      chars = firstChars(regex.substring(contentStart, end - 1), 0);
+    } else if (c == '[') {
+      end = skipCharacterClass(regex, pos);
+      chars = end < 0 ? null : parseCharacterClass(regex.substring(pos + 1, end - 1));
+    } else if (c == '\\') {
+      if (pos + 1 >= regex.length()) {
+        return null;
+      }
+      chars = escapedChars(regex.charAt(pos + 1));
+      end = pos + 2;
+    } else if (isMetaCharacter(c)) {
+      return null;
+    } else {
+      chars = new BitSet();
+      chars.set(c);
+      end = pos + 1;
+    }
+    if (chars == null || isOptional(regex, end)) {
+      return null;
+    }
+    return chars;
+  }
+
+  /**
+   * Characters matched by an escape sequence, {@code null} for unsupported ones. Escaped non
+   * alphanumeric characters are literals.
+   */
+  private static BitSet escapedChars(char c) {
+    BitSet chars = new BitSet();
+    switch (c) {
+      case 'd':
+        chars.set('0', '9' + 1);
+        return chars;
+      case 'w':
+        chars.set('a', 'z' + 1);
+        chars.set('A', 'Z' + 1);
+        chars.set('0', '9' + 1);
+        chars.set('_');
+        return chars;
+      default:
+        if (Character.isLetterOrDigit(c)) {
+          return null;
+        }
+        chars.set(c);
+        return chars;
+    }
+  }
+
+  private int[] getCandidates(String identifier) {
+    if (identifier.isEmpty()) {
+      int[] all = new int[indexes.length];
+      for (int i = 0; i < all.length; i++) {
+        all[i] = i;
+      }
+      return all;
+    }
+    char first = identifier.charAt(0);
+    return first < ASCII ? candidatesByAsciiChar[first] : computeCandidates(first);
+  }
+
+  /**
+   * @param resolvers list of resolvers
+   * @return true if this dispatcher has been compiled from the same resolvers with the same
+   *     patterns, i.e. neither the list nor a pattern has been changed since
+   */
+  public boolean isCompiledFrom(List<IdentifierPatternToFileResourceUriResolverImpl> resolvers) {
+    List<IdentifierPatternToFileResourceUriResolverImpl> current =
+        resolvers == null ? Collections.emptyList() : resolvers;
+    if (current.size() != this.resolvers.size()) {
+      return false;
+    }
+    for (int i = 0; i < this.resolvers.size(); i++) {
+      IdentifierPatternToFileResourceUriResolverImpl resolver = current.get(i);
+      if (resolver != this.resolvers.get(i)
+          || !Objects.equals(resolver.getPattern(), patterns.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isMetaCharacter(char c) {
+    return ".$^*+?{}[]()|".indexOf(c) >= 0;
+  }
+
+  /** Is the element ending before {@code pos} followed by a quantifier allowing zero matches? */
+  private static boolean isOptional(String regex, int pos) {
+    if (pos >= regex.length()) {
+      return false;
+    }
+    char c = regex.charAt(pos);
+    return c == '?' || c == '*' || regex.startsWith("{0", pos) || regex.startsWith("{,", pos);
+  }
+
+  /** Concatenation of the leading literal characters of a regular expression. */
+  private static String literalPrefix(String regex, int pos) {
+    StringBuilder prefix = new StringBuilder();
+    while (pos < regex.length()) {
+      char c = regex.charAt(pos);
+      int end;
+      if (c == '\\' && pos + 1 < regex.length()) {
+        c = regex.charAt(pos + 1);
+        if (Character.isLetterOrDigit(c)) {
+          break;
+        }
+        end = pos + 2;
+      } else if (isMetaCharacter(c)) {
+        break;
+      } else {
+        end = pos + 1;
+      }
+      if (isOptional(regex, end)) {
+        break;
+      }
+      prefix.append(c);
+      if (end < regex.length() && (regex.charAt(end) == '+' || regex.charAt(end) == '{')) {
+        // repeated character: the following characters are not fixed anymore
+        break;
+      }
+      pos = end;
+    }
+    return prefix.toString();
+  }
+
+  private boolean matches(int index, String identifier) {
+    return identifier.startsWith(indexes[index].prefix)
+        && resolvers.get(index).isResolvable(identifier);
+  }
+
+  /** Parse the content of a simple character class like {@code 0-9a-f_}. */
+  private static BitSet parseCharacterClass(String content) {
+    if (content.isEmpty() || content.startsWith("^") || content.contains("[")) {
+      return null;
+    }
+    BitSet chars = new BitSet();
+    int i = 0;
+    while (i < content.length()) {
+      char c = content.charAt(i);
+      if (c == '\\') {
+        if (i + 1 >= content.length()) {
+          return null;
+        }
+        BitSet escaped = escapedChars(content.charAt(i + 1));
+        if (escaped == null) {
+          return null;
+        }
+        chars.or(escaped);
+        i += 2;
+        continue;
+      }
+      if (c == '&') {
+        return null;
+      }
+      if (i + 2 < content.length() && content.charAt(i + 1) == '-') {
+        char to = content.charAt(i + 2);
+        if (to == '\\' || to < c) {
+          return null;
+        }
+        chars.set(c, to + 1);
+        i += 3;
+        continue;
+      }
+      chars.set(c);
+      i++;
+    }
+    return chars;
+  }
+
+  /** Position after the character class starting at {@code pos}, -1 if it is not terminated. */
+  private static int skipCharacterClass(String regex, int pos) {
+    for (int i = pos + 1; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == ']' && i > pos + 1) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /** Position after the group starting at {@code pos}, -1 if it is not terminated. */
+  private static int skipGroup(String regex, int pos) {
+    int depth = 0;
+    for (int i = pos; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '[') {
+        i = skipCharacterClass(regex, i) - 1;
+        if (i < 0) {
+          return -1;
+        }
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+    }
+    return -1;
+  }
+}
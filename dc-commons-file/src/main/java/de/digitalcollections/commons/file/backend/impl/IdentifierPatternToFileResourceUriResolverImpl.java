@@ -141,7 +141,7 @@ public class IdentifierPatternToFileResourceUriResolverImpl
   @Override
   public Boolean isResolvable(String identifier) {
     Boolean b = this.compiledPattern.matcher(identifier).matches();
-    LOGGER.debug("Matching " + identifier + " against " + this.pattern + " is " + b);
+    LOGGER.debug("Matching {} against {} is {}", identifier, this.pattern, b);
     return b;
   }
 }
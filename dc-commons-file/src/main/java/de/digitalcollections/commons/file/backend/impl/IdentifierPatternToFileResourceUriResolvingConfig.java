@@ -1,5 +1,6 @@
 package de.digitalcollections.commons.file.backend.impl;
 
+import java.time.Duration;
 import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
@@ -8,12 +9,79 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties("resource-repository.resolved")
 public class IdentifierPatternToFileResourceUriResolvingConfig {
 
+  private ResolutionCacheConfig cache = new ResolutionCacheConfig();
+
+  private DirectoryListingCacheConfig directoryListingCache = new DirectoryListingCacheConfig();
+
+  private KeyIndexConfig keyIndex = new KeyIndexConfig();
+
+  private KeyScanConfig keyScan = new KeyScanConfig();
+
+  private ResolutionCacheConfig negativeCache =
+      new ResolutionCacheConfig(false, Duration.ofSeconds(30), 10000);
+
   private List<IdentifierPatternToFileResourceUriResolverImpl> patterns;
 
+  /**
+   * @return configuration of the cache for successfully resolved file resources
+   */
+  public ResolutionCacheConfig getCache() {
+    return cache;
+  }
+
+  /**
+   * @return configuration of the cache for directory listings
+   */
+  public DirectoryListingCacheConfig getDirectoryListingCache() {
+    return directoryListingCache;
+  }
+
+  /**
+   * @return configuration of the persistent index of keys used by {@code findKeys}
+   */
+  public KeyIndexConfig getKeyIndex() {
+    return keyIndex;
+  }
+
+  /**
+   * @return configuration of how {@code findKeys} scans directories
+   */
+  public KeyScanConfig getKeyScan() {
+    return keyScan;
+  }
+
+  /**
+   * @return configuration of the cache for identifiers that could not be resolved to a readable
+   *     file resource
+   */
+  public ResolutionCacheConfig getNegativeCache() {
+    return negativeCache;
+  }
+
   public List<IdentifierPatternToFileResourceUriResolverImpl> getPatterns() {
     return this.patterns;
   }
 
+  public void setCache(ResolutionCacheConfig cache) {
+    this.cache = cache;
+  }
+
+  public void setDirectoryListingCache(DirectoryListingCacheConfig directoryListingCache) {
+    this.directoryListingCache = directoryListingCache;
+  }
+
+  public void setKeyIndex(KeyIndexConfig keyIndex) {
+    this.keyIndex = keyIndex;
+  }
+
+  public void setKeyScan(KeyScanConfig keyScan) {
+    this.keyScan = keyScan;
+  }
+
+  public void setNegativeCache(ResolutionCacheConfig negativeCache) {
+    this.negativeCache = negativeCache;
+  }
+
   // IMPORTANT: patterns does not get filled without setter! (not mentioned in Spring Boot doc!)
   public void setPatterns(List<IdentifierPatternToFileResourceUriResolverImpl> patterns) {
     this.patterns = patterns;
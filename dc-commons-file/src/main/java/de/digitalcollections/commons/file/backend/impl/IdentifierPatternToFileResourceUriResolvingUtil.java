@@ -3,41 +3,393 @@ package de.digitalcollections.commons.file.backend.impl;
 import de.digitalcollections.model.exception.ResourceIOException;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 @Component
-public class IdentifierPatternToFileResourceUriResolvingUtil {
+public class IdentifierPatternToFileResourceUriResolvingUtil implements DisposableBean {
 
   private static final Logger LOGGER =
       LoggerFactory.getLogger(IdentifierPatternToFileResourceUriResolvingUtil.class);
 
   private final IdentifierPatternToFileResourceUriResolvingConfig config;
+  private final DirectoryListingCache directoryListingCache;
+  private final FileResourceIoExecutor ioExecutor;
+  private final KeyIndex keyIndex;
+  private ExecutorService keyScanExecutor;
+  // created by this util and thus destroyed by it
+  private final boolean ownsCaches;
+  private final FileResourceIoExecutor ownedIoExecutor;
   private DirectoryStream<Path> overriddenDirectoryStream; // only for testing purposes
 
-  @Autowired
+  /**
+   * Creates a directory listing cache, key index and executor of its own, which are closed by
+   * {@link #destroy()}.
+   */
   public IdentifierPatternToFileResourceUriResolvingUtil(
       IdentifierPatternToFileResourceUriResolvingConfig config) {
+    this(config, new DirectoryListingCache(config), new KeyIndex(config), null, true);
+  }
+
+  public IdentifierPatternToFileResourceUriResolvingUtil(
+      IdentifierPatternToFileResourceUriResolvingConfig config,
+      DirectoryListingCache directoryListingCache,
+      KeyIndex keyIndex) {
+    this(config, directoryListingCache, keyIndex, null, false);
+  }
+
+  /**
+   * @param ioExecutor per-backend concurrency limits of the directory scans, its threads are not
+   *     used (scans run on an executor of their own, so that they can be timed out and cancelled);
+   *     {@code null} for an unbounded executor owned by this util
+   */
+  @Autowired
+  public IdentifierPatternToFileResourceUriResolvingUtil(
+      IdentifierPatternToFileResourceUriResolvingConfig config,
+      DirectoryListingCache directoryListingCache,
+      KeyIndex keyIndex,
+      FileResourceIoExecutor ioExecutor) {
+    this(config, directoryListingCache, keyIndex, ioExecutor, false);
+  }
+
+  private IdentifierPatternToFileResourceUriResolvingUtil(
+      IdentifierPatternToFileResourceUriResolvingConfig config,
+      DirectoryListingCache directoryListingCache,
+      KeyIndex keyIndex,
+      FileResourceIoExecutor ioExecutor,
+      boolean ownsCaches) {
     this.config = config;
+    this.directoryListingCache = directoryListingCache;
+    this.keyIndex = keyIndex;
+    if (ioExecutor == null) {
+      this.ownedIoExecutor = new FileResourceIoExecutor(new FileResourceIoConfig());
+      this.ioExecutor = ownedIoExecutor;
+    } else {
+      this.ownedIoExecutor = null;
+      this.ioExecutor = ioExecutor;
+    }
+    this.ownsCaches = ownsCaches;
   }
 
   public Set<String> findKeys(String keyPattern) throws ResourceIOException {
+    List<KeySource> keySources = getKeySources(keyPattern);
+    if (keyIndex.isEnabled() && overriddenDirectoryStream == null) {
+      try {
+        return new HashSet<>(keyIndex.getKeys(keyPattern, keySources));
+      } catch (IOException e) {
+        throw new ResourceIOException("Cannot index keys for " + keyPattern, e);
+      }
+    }
+
+    if (keySources.size() <= 1 && config.getKeyScan().getDirectoryTimeout() == null) {
+      Set<String> keys = new HashSet<>();
+      for (KeySource keySource : keySources) {
+        keys.addAll(scan(keySource));
+      }
+      return keys;
+    }
+
+    // Directories of different substitution paths (often on different volumes) are scanned
+    // concurrently
+    Set<String> keys = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = getKeyScanExecutor();
+    List<Future<?>> futures = new ArrayList<>();
+    List<AtomicLong> startTimes = new ArrayList<>();
+    for (KeySource keySource : keySources) {
+      AtomicLong startTime = new AtomicLong();
+      startTimes.add(startTime);
+      futures.add(
+          executor.submit(
+              () -> {
+                startTime.set(System.nanoTime());
+                keys.addAll(scan(keySource));
+              }));
+    }
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        awaitScan(futures.get(i), startTimes.get(i), keySources.get(i));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResourceIOException("Interrupted while finding keys for " + keyPattern, e);
+    } catch (ExecutionException e) {
+      throw new ResourceIOException("Cannot find keys for " + keyPattern, e.getCause());
+    } finally {
+      // stop scans still running after a failure, timeout or interruption
+      futures.forEach(f -> f.cancel(true));
+    }
+    return keys;
+  }
+
+  private void awaitScan(Future<?> future, AtomicLong startTime, KeySource keySource)
+      throws InterruptedException, ExecutionException, ResourceIOException {
+    Duration timeout = config.getKeyScan().getDirectoryTimeout();
+    if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+      future.get();
+      return;
+    }
+    long timeoutNanos = timeout.toNanos();
+    while (true) {
+      // the timeout starts when the scan of the directory starts, not when it is queued
+      long started = startTime.get();
+      long waitNanos = started == 0 ? timeoutNanos : started + timeoutNanos - System.nanoTime();
+      try {
+        future.get(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+        return;
+      } catch (TimeoutException e) {
+        started = startTime.get();
+        if (started != 0 && System.nanoTime() - started >= timeoutNanos) {
+          throw new ResourceIOException(
+              "Timeout after " + timeout + " scanning directory " + keySource.getDirectory());
+        }
+      }
+    }
+  }
+
+  private synchronized ExecutorService getKeyScanExecutor() {
+    if (keyScanExecutor == null) {
+      keyScanExecutor =
+          FileResourceExecutors.newBlockingIoExecutor(
+              true, Math.max(1, config.getKeyScan().getParallelism()), "find-keys-");
+    }
+    return keyScanExecutor;
+  }
+
+  /**
+   * Retrieve all files in the substitution path and filter out the non matching ones. "Matching"
+   * means, match the filename of the substitution and match the key pattern. Finally map them onto
+   * the keys.
+   */
+  private Set<String> scan(KeySource keySource) {
+    Path basePath = keySource.getDirectory();
+    try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(basePath.toUri());
+        Stream<Path> stream = getFilesInDirectory(basePath).stream()) {
+      return stream
+          .map(path -> keySource.getKey(path.getFileName().normalize().toString()))
+          .filter(Objects::nonNull)
+          .collect(Collectors.toSet());
+    } catch (IOException e) {
+      LOGGER.error("Cannot traverse directory " + basePath + ": " + e, e);
+      return Collections.emptySet();
+    }
+  }
+
+  @Override
+  public synchronized void destroy() throws IOException {
+    if (keyScanExecutor != null) {
+      keyScanExecutor.shutdownNow();
+    }
+    if (ownedIoExecutor != null) {
+      ownedIoExecutor.destroy();
+    }
+    if (ownsCaches) {
+      // flushes pending changes of the key index
+      keyIndex.destroy();
+      directoryListingCache.destroy();
+    }
+  }
+
+  /**
+   * @param keyPattern key pattern as configured
+   * @param prefix prefix of the keys, e.g. "news_2023"
+   * @return sorted keys starting with the prefix (answered from the key index, if enabled)
+   * @throws ResourceIOException if keys can not be determined
+   */
+  public NavigableSet<String> findKeys(String keyPattern, String prefix)
+      throws ResourceIOException {
+    NavigableSet<String> keys;
+    if (keyIndex.isEnabled() && overriddenDirectoryStream == null) {
+      try {
+        keys = keyIndex.getKeys(keyPattern, getKeySources(keyPattern));
+      } catch (IOException e) {
+        throw new ResourceIOException("Cannot index keys for " + keyPattern, e);
+      }
+    } else {
+      keys = new TreeSet<>(findKeys(keyPattern));
+    }
+    if (prefix == null || prefix.isEmpty()) {
+      return keys;
+    }
+    char last = prefix.charAt(prefix.length() - 1);
+    if (last == Character.MAX_VALUE) {
+      return keys.tailSet(prefix, true);
+    }
+    String end = prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    return keys.subSet(prefix, true, end, false);
+  }
+
+  /**
+   * Page through the sorted keys of a key pattern.
+   *
+   * @param keyPattern key pattern as configured
+   * @param prefix prefix of the keys, may be null
+   * @param after last key of the previous page, null for the first page
+   * @param limit maximum number of keys
+   * @return keys of the page
+   * @throws ResourceIOException if keys can not be determined
+   */
+  public List<String> findKeys(String keyPattern, String prefix, String after, int limit)
+      throws ResourceIOException {
+    NavigableSet<String> keys = findKeys(keyPattern, prefix);
+    if (after != null) {
+      keys = keys.tailSet(after, false);
+    }
+    return keys.stream().limit(limit).collect(Collectors.toList());
+  }
+
+  /**
+   * Lazily stream the keys of a key pattern without reading whole directories into memory, e.g. for
+   * exporting all keys. The stream holds open directory handles, so it has to be closed:
+   *
+   * <pre>
+   * try (Stream&lt;String&gt; keys = util.streamKeys("news_(\\d{8})")) {
+   *   keys.forEach(...);
+   * }
+   * </pre>
+   *
+   * <p>Unlike {@link #findKeys(String)}, a key backed by several files (e.g. for several
+   * substitution paths) is returned once per file. If the key index is enabled, keys are streamed
+   * from the index in sorted order instead.
+   *
+   * <p>Reading a directory takes permits of its backend (see {@link FileResourceIoExecutor}), which
+   * are not held while the caller consumes the keys. If interrupted while waiting for one,
+   * consuming the stream throws an {@link UncheckedIOException}.
+   *
+   * @param keyPattern key pattern as configured
+   * @return stream of keys
+   * @throws ResourceIOException if a substitution path has references in its directory or the key
+   *     index can not be built
+   */
+  public Stream<String> streamKeys(String keyPattern) throws ResourceIOException {
+    List<KeySource> keySources = getKeySources(keyPattern);
+    if (keyIndex.isEnabled() && overriddenDirectoryStream == null) {
+      try {
+        return keyIndex.getKeys(keyPattern, keySources).stream();
+      } catch (IOException e) {
+        throw new ResourceIOException("Cannot index keys for " + keyPattern, e);
+      }
+    }
+    // directories are opened one after the other while the stream is consumed
+    return keySources.stream().flatMap(this::streamKeys);
+  }
+
+  /**
+   * Stream a page of the keys of a key pattern, see {@link #streamKeys(String)}.
+   *
+   * @param keyPattern key pattern as configured
+   * @param offset number of keys to skip
+   * @param limit maximum number of keys
+   * @return stream of keys
+   * @throws ResourceIOException if a substitution path has references in its directory or the key
+   *     index can not be built
+   */
+  public Stream<String> streamKeys(String keyPattern, long offset, long limit)
+      throws ResourceIOException {
+    return streamKeys(keyPattern).skip(offset).limit(limit);
+  }
+
+  /**
+   * Stream the keys of a directory. Opening the directory, reading its entries and checking the
+   * files take a permit of its backend each, so that none is held while the caller consumes the
+   * keys.
+   */
+  private Stream<String> streamKeys(KeySource keySource) {
+    URI directory = keySource.getDirectory().toUri();
+    DirectoryStream<Path> directoryStream;
+    try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(directory)) {
+      // The overriddenDirectoryStream is only used for testing
+      directoryStream =
+          overriddenDirectoryStream == null
+              ? Files.newDirectoryStream(keySource.getDirectory())
+              : overriddenDirectoryStream;
+    } catch (IOException e) {
+      LOGGER.error("Cannot traverse directory " + keySource.getDirectory() + ": " + e, e);
+      return Stream.empty();
+    }
+    Iterator<Path> entries = directoryStream.iterator();
+    Iterator<Path> permittedEntries =
+        new Iterator<>() {
+          @Override
+          public boolean hasNext() {
+            try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(directory)) {
+              return entries.hasNext();
+            } catch (ResourceIOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }
+
+          @Override
+          public Path next() {
+            try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(directory)) {
+              return entries.next();
+            } catch (ResourceIOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }
+        };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(permittedEntries, 0), false)
+        .map(
+            path -> {
+              String key = keySource.getKey(path.getFileName().normalize().toString());
+              if (key == null || overriddenDirectoryStream != null) {
+                return key;
+              }
+              // only stat files with a matching name
+              try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(directory)) {
+                return Files.isRegularFile(path) ? key : null;
+              } catch (ResourceIOException e) {
+                throw new UncheckedIOException(e);
+              }
+            })
+        .filter(Objects::nonNull)
+        .onClose(
+            () -> {
+              try {
+                directoryStream.close();
+              } catch (IOException e) {
+                LOGGER.warn("Cannot close directory " + keySource.getDirectory() + ": " + e, e);
+              }
+            });
+  }
+
+  /**
+   * @param keyPattern key pattern as configured
+   * @return directories and filename patterns of all substitution paths of the key pattern
+   * @throws ResourceIOException if a substitution path has references in its directory
+   */
+  List<KeySource> getKeySources(String keyPattern) throws ResourceIOException {
     // The pattern for valid keys is the original pattern without any brackets inside, but
     // surrounded with one bracket.
     // news_(\\d{8}) -> (news_\\d{8})
@@ -47,7 +399,7 @@ public class IdentifierPatternToFileResourceUriResolvingUtil {
                 + keyPattern.replace("(", "").replace(")", "").replace("^", "").replace("$", "")
                 + ")");
 
-    Set<String> keys = new HashSet<>();
+    List<KeySource> keySources = new ArrayList<>();
 
     // For all handlers: Retrieve all substition paths for the given key pattern
     Set<Path> paths = getPathsByPattern(keyPattern);
@@ -76,23 +428,9 @@ public class IdentifierPatternToFileResourceUriResolvingUtil {
         basePath = Paths.get(basePath.toString().substring(5));
       }
 
-      // Retrieve all files in the substitution path and filter out the non matching ones.
-      // "Matching" means, match the filename of the substitution and match the key pattern
-      // Finally map them onto the keys
-      try (Stream<Path> stream = getFilesInDirectory(basePath).stream()) {
-        keys.addAll(
-            stream
-                .map(path -> path.getFileName().normalize().toString())
-                .filter(filename -> matchesPattern(validFilenamesPattern, filename))
-                .filter(filename -> matchesPattern(validKeysPattern, filename))
-                .map(filename -> mapToPattern(validKeysPattern, filename))
-                .collect(Collectors.toSet()));
-      } catch (IOException e) {
-        LOGGER.error("Cannot traverse directory " + basePath + ": " + e, e);
-      }
+      keySources.add(new KeySource(basePath, validFilenamesPattern, validKeysPattern));
     }
-
-    return keys;
+    return keySources;
   }
 
   public Set<Path> getPathsByPattern(String pattern) throws ResourceIOException {
@@ -106,20 +444,17 @@ public class IdentifierPatternToFileResourceUriResolvingUtil {
   }
 
   private List<Path> getFilesInDirectory(Path basePath) throws IOException {
-    List<Path> ret = new ArrayList<>();
+    if (overriddenDirectoryStream == null) {
+      return directoryListingCache.getRegularFiles(basePath);
+    }
 
     // The overriddenDirectoryStream is only used for testing
-    try (DirectoryStream<Path> directoryStream =
-        overriddenDirectoryStream == null
-            ? Files.newDirectoryStream(basePath)
-            : overriddenDirectoryStream) {
+    List<Path> ret = new ArrayList<>();
+    try (DirectoryStream<Path> directoryStream = overriddenDirectoryStream) {
       Iterator<Path> it = directoryStream.iterator();
       if (it != null) {
         while (it.hasNext()) {
-          Path path = it.next();
-          if ((overriddenDirectoryStream != null) || Files.isRegularFile(path)) {
-            ret.add(path);
-          }
+          ret.add(it.next());
         }
       }
     }
@@ -127,20 +462,6 @@ public class IdentifierPatternToFileResourceUriResolvingUtil {
     return ret;
   }
 
-  private String mapToPattern(Pattern pattern, String filename) {
-    Matcher m = pattern.matcher(filename);
-    if (m.find()) {
-      return m.group(1);
-    } else {
-      return null;
-    }
-  }
-
-  private boolean matchesPattern(Pattern pattern, String filename) {
-    Matcher m = pattern.matcher(filename);
-    return m.find();
-  }
-
   protected void overrideDirectoryStream(DirectoryStream<Path> overriddenDirectoryStream) {
     this.overriddenDirectoryStream = overriddenDirectoryStream;
   }
@@ -0,0 +1,393 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persistent index of the keys found by {@code findKeys} (see {@link KeyIndexConfig}).
+ *
+ * <p>The keys of a key pattern are collected once by listing the directories of its substitution
+ * paths and written to an index file. A written index is reused as long as the modification
+ * timestamps of the directories did not change, otherwise it is rebuilt on first use. While the
+ * application is running, indexes are updated by events of a {@link WatchService} and written again
+ * after the flush interval. If events got lost (overflow), the index is rebuilt lazily.
+ */
+@Component
+public class KeyIndex implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KeyIndex.class);
+
+  private static final String HEADER = "# dc-commons-file key index v2";
+  private static final int MAX_BUILD_ATTEMPTS = 3;
+
+  private static final class Index {
+
+    private volatile boolean dirty;
+    private final Path file;
+    // files by key, as immutable sets, so that events for files already known (e.g. an atomic
+    // replacement by rename) do not count twice
+    private final ConcurrentSkipListMap<String, Set<String>> keys = new ConcurrentSkipListMap<>();
+    private volatile boolean ready;
+    private final List<KeySource> sources;
+
+    Index(Path file, List<KeySource> sources) {
+      this.file = file;
+      this.sources = sources;
+    }
+
+    Set<Path> getDirectories() {
+      return sources.stream().map(KeySource::getDirectory).collect(Collectors.toSet());
+    }
+  }
+
+  private final KeyIndexConfig config;
+  private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+  private final Map<Path, Set<Index>> indexesByDirectory = new ConcurrentHashMap<>();
+  private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+  private final WatchService watchService;
+
+  @Autowired
+  public KeyIndex(IdentifierPatternToFileResourceUriResolvingConfig config) {
+    this(config.getKeyIndex());
+  }
+
+  public KeyIndex(KeyIndexConfig config) {
+    this.config = config == null ? new KeyIndexConfig() : config;
+    this.watchService = isEnabled() && this.config.isWatch() ? createWatchService() : null;
+    if (watchService != null) {
+      Thread watchThread = new Thread(this::processEvents, "key-index-watch");
+      watchThread.setDaemon(true);
+      watchThread.start();
+    }
+  }
+
+  private static WatchService createWatchService() {
+    try {
+      return FileSystems.getDefault().newWatchService();
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.warn("Can not watch directories, key indexes are only checked on startup", e);
+      return null;
+    }
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+    flush();
+  }
+
+  private void apply(Index index, Path directory, WatchEvent.Kind<?> kind, String filename) {
+    if (!index.ready) {
+      // changes during a build are detected by the modification timestamp of the directory
+      return;
+    }
+    for (KeySource source : index.sources) {
+      if (!source.getDirectory().equals(directory)) {
+        continue;
+      }
+      String key = source.getKey(filename);
+      if (key == null) {
+        continue;
+      }
+      Path path = directory.resolve(filename);
+      if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+        if (Files.isRegularFile(path)) {
+          index.keys.merge(key, Set.of(path.toString()), KeyIndex::union);
+          index.dirty = true;
+        }
+      } else if (index.keys.containsKey(key)) {
+        index.keys.computeIfPresent(key, (k, files) -> without(files, path.toString()));
+        index.dirty = true;
+      }
+    }
+  }
+
+  private void build(Index index) throws IOException {
+    for (int attempt = 1; attempt <= MAX_BUILD_ATTEMPTS; attempt++) {
+      index.ready = false;
+      Map<Path, Long> lastModifiedBefore = getLastModified(index.getDirectories());
+      Map<String, Set<String>> keys = scan(index.sources);
+      index.keys.clear();
+      index.keys.putAll(keys);
+      index.ready = true;
+      if (lastModifiedBefore.equals(getLastModified(index.getDirectories()))) {
+        break;
+      }
+      LOGGER.debug("Directories changed while building key index {}, rebuilding", index.file);
+    }
+    write(index);
+  }
+
+  /** Write all changed indexes to disk. */
+  public void flush() {
+    for (Index index : indexes.values()) {
+      if (index.dirty) {
+        try {
+          write(index);
+        } catch (IOException e) {
+          LOGGER.warn("Can not write key index {}", index.file, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param keyPattern key pattern the sources belong to
+   * @param sources sources of the keys
+   * @return sorted keys, an unmodifiable view updated by file system events
+   * @throws IOException if the index can not be built
+   */
+  NavigableSet<String> getKeys(String keyPattern, List<KeySource> sources) throws IOException {
+    String id = getId(keyPattern, sources);
+    Index index = indexes.get(id);
+    if (index == null) {
+      synchronized (this) {
+        index = indexes.get(id);
+        if (index == null) {
+          index = new Index(Paths.get(config.getDirectory()).resolve(id + ".idx"), sources);
+          for (Path directory : index.getDirectories()) {
+            // watch before reading, so that no change gets lost
+            watch(directory);
+            indexesByDirectory.computeIfAbsent(directory, d -> ConcurrentHashMap.newKeySet());
+            indexesByDirectory.get(directory).add(index);
+          }
+          if (!read(index)) {
+            build(index);
+          }
+          indexes.put(id, index);
+        }
+      }
+    }
+    return Collections.unmodifiableNavigableSet(index.keys.navigableKeySet());
+  }
+
+  private static String getId(String keyPattern, List<KeySource> sources) {
+    String description =
+        keyPattern
+            + "\n"
+            + sources.stream().map(KeySource::toString).sorted().collect(Collectors.joining("\n"));
+    return UUID.nameUUIDFromBytes(description.getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  private static Map<Path, Long> getLastModified(Set<Path> directories) {
+    Map<Path, Long> lastModified = new LinkedHashMap<>();
+    for (Path directory : directories) {
+      try {
+        lastModified.put(directory, Files.getLastModifiedTime(directory).toMillis());
+      } catch (IOException e) {
+        lastModified.put(directory, -1L);
+      }
+    }
+    return lastModified;
+  }
+
+  public boolean isEnabled() {
+    return config.isEnabled();
+  }
+
+  /** Forget an index whose events got lost, it is rebuilt on next use. */
+  private void discard(Index index) {
+    indexes.values().remove(index);
+    indexesByDirectory.values().forEach(i -> i.remove(index));
+    try {
+      Files.deleteIfExists(index.file);
+    } catch (IOException e) {
+      LOGGER.warn("Can not delete key index {}", index.file, e);
+    }
+  }
+
+  private void processEvents() {
+    long flushIntervalMillis = Math.max(1, config.getFlushInterval().toMillis());
+    long nextFlush = System.currentTimeMillis() + flushIntervalMillis;
+    while (true) {
+      WatchKey key;
+      try {
+        key = watchService.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+      if (key != null) {
+        Path directory = watchedDirectories.get(key);
+        Set<Index> affected = indexesByDirectory.getOrDefault(directory, Collections.emptySet());
+        for (WatchEvent<?> event : key.pollEvents()) {
+          for (Index index : affected) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              discard(index);
+            } else {
+              apply(index, directory, event.kind(), event.context().toString());
+            }
+          }
+        }
+        if (!key.reset()) {
+          watchedDirectories.remove(key);
+        }
+      }
+      if (System.currentTimeMillis() >= nextFlush) {
+        flush();
+        nextFlush = System.currentTimeMillis() + flushIntervalMillis;
+      }
+    }
+  }
+
+  /**
+   * @return true if the index file exists and no directory has been modified since it was written
+   */
+  private boolean read(Index index) {
+    if (!Files.isReadable(index.file)) {
+      return false;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(index.file, StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        return false;
+      }
+      Map<Path, Long> lastModified = new LinkedHashMap<>();
+      String line;
+      while ((line = reader.readLine()) != null && !line.isEmpty()) {
+        String[] parts = line.split("\t", 2);
+        lastModified.put(Paths.get(parts[1]), Long.parseLong(parts[0]));
+      }
+      if (!lastModified.equals(getLastModified(index.getDirectories()))) {
+        return false;
+      }
+      index.ready = true;
+      while ((line = reader.readLine()) != null) {
+        String[] parts = line.split("\t");
+        index.keys.put(parts[0], Set.of(Arrays.copyOfRange(parts, 1, parts.length)));
+      }
+      return true;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Can not read key index {}, rebuilding it", index.file, e);
+      index.keys.clear();
+      return false;
+    }
+  }
+
+  private static Map<String, Set<String>> scan(List<KeySource> sources) throws IOException {
+    Map<String, Set<String>> keys = new HashMap<>();
+    Map<Path, List<KeySource>> sourcesByDirectory =
+        sources.stream().collect(Collectors.groupingBy(KeySource::getDirectory));
+    for (Map.Entry<Path, List<KeySource>> entry : sourcesByDirectory.entrySet()) {
+      try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(entry.getKey())) {
+        for (Path path : directoryStream) {
+          String filename = path.getFileName().toString();
+          for (KeySource source : entry.getValue()) {
+            String key = source.getKey(filename);
+            if (key != null && Files.isRegularFile(path)) {
+              keys.merge(key, Set.of(path.toString()), KeyIndex::union);
+            }
+          }
+        }
+      } catch (NoSuchFileException e) {
+        LOGGER.warn("Directory {} of key index does not exist", entry.getKey());
+      }
+    }
+    return keys;
+  }
+
+  private static Set<String> union(Set<String> files, Set<String> others) {
+    if (files.containsAll(others)) {
+      return files;
+    }
+    Set<String> union = new HashSet<>(files);
+    union.addAll(others);
+    return Set.copyOf(union);
+  }
+
+  /**
+   * @return the files without the given one, {@code null} if none is left
+   */
+  private static Set<String> without(Set<String> files, String file) {
+    if (!files.contains(file)) {
+      return files;
+    }
+    Set<String> remaining = new HashSet<>(files);
+    remaining.remove(file);
+    return remaining.isEmpty() ? null : Set.copyOf(remaining);
+  }
+
+  private void watch(Path directory) {
+    if (watchService == null) {
+      return;
+    }
+    try {
+      WatchKey key =
+          directory.register(
+              watchService,
+              StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_DELETE);
+      watchedDirectories.put(key, directory);
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.debug("Can not watch {}, key index is only checked on startup", directory, e);
+    }
+  }
+
+  private void write(Index index) throws IOException {
+    index.dirty = false;
+    // timestamps before the keys, so that a concurrent change results in a rebuild
+    Map<Path, Long> lastModified = getLastModified(index.getDirectories());
+    Files.createDirectories(index.file.getParent());
+    Path tempFile = Files.createTempFile(index.file.getParent(), "key-index", ".tmp");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+        writer.write(HEADER);
+        writer.newLine();
+        for (Map.Entry<Path, Long> entry : lastModified.entrySet()) {
+          writer.write(entry.getValue() + "\t" + entry.getKey());
+          writer.newLine();
+        }
+        writer.newLine();
+        for (Map.Entry<String, Set<String>> entry : index.keys.entrySet()) {
+          writer.write(entry.getKey() + "\t" + String.join("\t", entry.getValue()));
+          writer.newLine();
+        }
+      }
+      try {
+        Files.move(
+            tempFile,
+            index.file,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, index.file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+}
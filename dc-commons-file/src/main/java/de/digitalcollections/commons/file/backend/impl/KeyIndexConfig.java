@@ -0,0 +1,69 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the persistent index of keys used by {@code findKeys}, bound to {@code
+ * resource-repository.resolved.key-index}. The index is disabled by default.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   resolved:
+ *     key-index:
+ *       enabled: true
+ *       directory: /var/cache/my-app/key-index
+ *       flush-interval: 30s
+ *       watch: true
+ * </pre>
+ */
+public class KeyIndexConfig {
+
+  private String directory = System.getProperty("java.io.tmpdir") + "/dc-commons-file-key-index";
+  private boolean enabled = false;
+  private Duration flushInterval = Duration.ofSeconds(10);
+  private boolean watch = true;
+
+  /**
+   * @return directory the index files are written to
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return minimum time between writing changes of an index to disk
+   */
+  public Duration getFlushInterval() {
+    return flushInterval;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return true if indexes are updated by file system events, otherwise an index is only rebuilt
+   *     if a directory has been modified since it was written
+   */
+  public boolean isWatch() {
+    return watch;
+  }
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setFlushInterval(Duration flushInterval) {
+    this.flushInterval = flushInterval;
+  }
+
+  public void setWatch(boolean watch) {
+    this.watch = watch;
+  }
+}
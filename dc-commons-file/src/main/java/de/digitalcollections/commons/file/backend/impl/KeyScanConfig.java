@@ -0,0 +1,46 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.time.Duration;
+
+/**
+ * Configuration of how {@code findKeys} scans the directories of the substitution paths, bound to
+ * {@code resource-repository.resolved.key-scan}.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   resolved:
+ *     key-scan:
+ *       parallelism: 4
+ *       directory-timeout: 10m
+ * </pre>
+ */
+public class KeyScanConfig {
+
+  private Duration directoryTimeout;
+  private int parallelism = 4;
+
+  /**
+   * @return maximum time to scan a single directory, {@code null} for no limit
+   */
+  public Duration getDirectoryTimeout() {
+    return directoryTimeout;
+  }
+
+  /**
+   * @return maximum number of directories scanned concurrently (if virtual threads are not
+   *     available)
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setDirectoryTimeout(Duration directoryTimeout) {
+    this.directoryTimeout = directoryTimeout;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+}
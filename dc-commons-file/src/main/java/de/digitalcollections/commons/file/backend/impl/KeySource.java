@@ -0,0 +1,63 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Where keys of a key pattern come from: the files of a directory whose names match the filename of
+ * a substitution path.
+ */
+final class KeySource {
+
+  private final Path directory;
+  private final Pattern filenamePattern;
+  private final Pattern keysPattern;
+
+  KeySource(Path directory, Pattern filenamePattern, Pattern keysPattern) {
+    this.directory = directory;
+    this.filenamePattern = filenamePattern;
+    this.keysPattern = keysPattern;
+  }
+
+  Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param filename name of a file in the directory
+   * @return key of the file or null if the file does not belong to the key pattern
+   */
+  String getKey(String filename) {
+    if (!filenamePattern.matcher(filename).find()) {
+      return null;
+    }
+    Matcher m = keysPattern.matcher(filename);
+    return m.find() ? m.group(1) : null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof KeySource)) {
+      return false;
+    }
+    KeySource other = (KeySource) o;
+    return directory.equals(other.directory)
+        && filenamePattern.pattern().equals(other.filenamePattern.pattern())
+        && keysPattern.pattern().equals(other.keysPattern.pattern());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(directory, filenamePattern.pattern(), keysPattern.pattern());
+  }
+
+  @Override
+  public String toString() {
+    return directory + "/" + filenamePattern.pattern() + " -> " + keysPattern.pattern();
+  }
+}
@@ -0,0 +1,71 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import java.time.Duration;
+
+/**
+ * Configuration of a cache for resolved file resources, e.g. bound to {@code
+ * resource-repository.resolved.cache}. Caching is disabled by default.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   resolved:
+ *     cache:
+ *       enabled: true
+ *       ttl: 10m
+ *       max-entries: 50000
+ *       eviction-policy: lru
+ * </pre>
+ */
+public class ResolutionCacheConfig {
+
+  private boolean enabled = false;
+  private String evictionPolicy = "lru";
+  private int maxEntries = 10000;
+  private Duration ttl = Duration.ofMinutes(5);
+
+  public ResolutionCacheConfig() {}
+
+  public ResolutionCacheConfig(boolean enabled, Duration ttl, int maxEntries) {
+    this.enabled = enabled;
+    this.ttl = ttl;
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * @return "lru", "fifo", "lfu" or the fully qualified class name of a custom {@link
+   *     de.digitalcollections.commons.file.backend.impl.cache.EvictionPolicy}
+   */
+  public String getEvictionPolicy() {
+    return evictionPolicy;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setEvictionPolicy(String evictionPolicy) {
+    this.evictionPolicy = evictionPolicy;
+  }
+
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  public void setTtl(Duration ttl) {
+    this.ttl = ttl;
+  }
+}
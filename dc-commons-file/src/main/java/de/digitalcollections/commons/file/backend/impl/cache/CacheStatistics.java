@@ -0,0 +1,67 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+/** Immutable snapshot of the counters of a cache. */
+public class CacheStatistics {
+
+  public static final CacheStatistics EMPTY = new CacheStatistics(0, 0, 0, 0, 0);
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long expirationCount;
+  private final long size;
+
+  public CacheStatistics(
+      long hitCount, long missCount, long evictionCount, long expirationCount, long size) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.expirationCount = expirationCount;
+    this.size = size;
+  }
+
+  /**
+   * @return number of entries removed to keep the cache within its size bound
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return number of entries removed because their time to live was exceeded
+   */
+  public long getExpirationCount() {
+    return expirationCount;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return number of entries in the cache at the time the snapshot was taken
+   */
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics{"
+        + "hits="
+        + hitCount
+        + ", misses="
+        + missCount
+        + ", evictions="
+        + evictionCount
+        + ", expirations="
+        + expirationCount
+        + ", size="
+        + size
+        + '}';
+  }
+}
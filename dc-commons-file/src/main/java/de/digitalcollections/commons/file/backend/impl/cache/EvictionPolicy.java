@@ -0,0 +1,68 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Strategy deciding which entry of a bounded {@link ExpiringCache} has to make room when the cache
+ * is full. Implementations only keep track of keys; they are always called while the owning cache
+ * holds its lock, so they do not have to be thread-safe themselves.
+ *
+ * <p>Custom implementations can be configured by their fully qualified class name, they need a
+ * public no-arg constructor.
+ *
+ * @param <K> type of the cache keys
+ */
+public interface EvictionPolicy<K> {
+
+  /**
+   * Create an eviction policy by name.
+   *
+   * @param name "lru", "fifo", "lfu" or the fully qualified class name of an {@link EvictionPolicy}
+   *     implementation
+   * @param <K> type of the cache keys
+   * @return new policy instance
+   * @throws IllegalArgumentException if no policy with the given name exists
+   */
+  @SuppressWarnings("unchecked")
+  static <K> EvictionPolicy<K> forName(String name) {
+    if (name == null || "lru".equalsIgnoreCase(name)) {
+      return new LruEvictionPolicy<>();
+    }
+    if ("fifo".equalsIgnoreCase(name)) {
+      return new FifoEvictionPolicy<>();
+    }
+    if ("lfu".equalsIgnoreCase(name)) {
+      return new LfuEvictionPolicy<>();
+    }
+    try {
+      Class<?> clazz = ClassUtils.forName(name, EvictionPolicy.class.getClassLoader());
+      if (!EvictionPolicy.class.isAssignableFrom(clazz)) {
+        throw new IllegalArgumentException(name + " is not an EvictionPolicy");
+      }
+      return (EvictionPolicy<K>) BeanUtils.instantiateClass(clazz);
+    } catch (ClassNotFoundException | LinkageError e) {
+      throw new IllegalArgumentException("Unknown eviction policy " + name, e);
+    }
+  }
+
+  /**
+   * @param key key that has been read from the cache
+   */
+  void onAccess(K key);
+
+  /**
+   * @param key key that has been added to the cache
+   */
+  void onInsert(K key);
+
+  /**
+   * @param key key that has been removed from the cache (evicted, expired or invalidated)
+   */
+  void onRemove(K key);
+
+  /**
+   * @return key of the entry to be evicted next, {@code null} if no key is tracked
+   */
+  K selectVictim();
+}
@@ -0,0 +1,252 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Simple thread-safe in-memory cache with a time to live per entry and an upper bound of entries.
+ * Optionally the entries are also bounded by their total weight, e.g. the number of cached bytes.
+ * Which entry is dropped when a bound is reached is decided by a pluggable {@link EvictionPolicy}.
+ * Expired entries are removed lazily on access.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the cached values
+ */
+public class ExpiringCache<K, V> {
+
+  private static class Entry<V> {
+
+    private final V value;
+    private final long expiresAt;
+    private final long weight;
+
+    Entry(V value, long expiresAt, long weight) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.weight = weight;
+    }
+  }
+
+  private final LongSupplier clock;
+  private final Map<K, Entry<V>> entries = new HashMap<>();
+  private final EvictionPolicy<K> evictionPolicy;
+  private final int maxEntries;
+  private final long maxWeight;
+  private final long ttlNanos;
+  private final ToLongFunction<V> weigher;
+
+  private long evictionCount;
+  private long expirationCount;
+  private long hitCount;
+  private long missCount;
+  private long totalWeight;
+
+  /**
+   * @param ttl time to live of an entry, {@code null} or zero for no expiry
+   * @param maxEntries maximum number of entries, must be positive
+   * @param evictionPolicy policy selecting the entry to evict if the cache is full
+   */
+  public ExpiringCache(Duration ttl, int maxEntries, EvictionPolicy<K> evictionPolicy) {
+    this(ttl, maxEntries, evictionPolicy, System::nanoTime);
+  }
+
+  /**
+   * @param ttl time to live of an entry, {@code null} or zero for no expiry
+   * @param maxEntries maximum number of entries, must be positive
+   * @param evictionPolicy policy selecting the entry to evict if the cache is full
+   * @param clock source of the current time in nanoseconds
+   */
+  public ExpiringCache(
+      Duration ttl, int maxEntries, EvictionPolicy<K> evictionPolicy, LongSupplier clock) {
+    this(ttl, maxEntries, Long.MAX_VALUE, value -> 0, evictionPolicy, clock);
+  }
+
+  /**
+   * @param ttl time to live of an entry, {@code null} or zero for no expiry
+   * @param maxEntries maximum number of entries, must be positive
+   * @param maxWeight maximum total weight of the entries, heavier values are not cached at all
+   * @param weigher weight of a value, e.g. its size in bytes
+   * @param evictionPolicy policy selecting the entry to evict if the cache is full
+   */
+  public ExpiringCache(
+      Duration ttl,
+      int maxEntries,
+      long maxWeight,
+      ToLongFunction<V> weigher,
+      EvictionPolicy<K> evictionPolicy) {
+    this(ttl, maxEntries, maxWeight, weigher, evictionPolicy, System::nanoTime);
+  }
+
+  /**
+   * @param ttl time to live of an entry, {@code null} or zero for no expiry
+   * @param maxEntries maximum number of entries, must be positive
+   * @param maxWeight maximum total weight of the entries, heavier values are not cached at all
+   * @param weigher weight of a value, e.g. its size in bytes
+   * @param evictionPolicy policy selecting the entry to evict if the cache is full
+   * @param clock source of the current time in nanoseconds
+   */
+  public ExpiringCache(
+      Duration ttl,
+      int maxEntries,
+      long maxWeight,
+      ToLongFunction<V> weigher,
+      EvictionPolicy<K> evictionPolicy,
+      LongSupplier clock) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive, but was " + maxEntries);
+    }
+    this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+    this.maxEntries = maxEntries;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    this.evictionPolicy = evictionPolicy;
+    this.clock = clock;
+  }
+
+  /** Remove all entries. Counters are kept. */
+  public synchronized void clear() {
+    for (K key : entries.keySet()) {
+      evictionPolicy.onRemove(key);
+    }
+    entries.clear();
+    totalWeight = 0;
+  }
+
+  /**
+   * Look up an entry without counting a hit or miss and without changing the eviction order.
+   *
+   * @param key key of the entry
+   * @return {@code true} if there is an unexpired entry for the key
+   */
+  public synchronized boolean contains(K key) {
+    Entry<V> entry = entries.get(key);
+    return entry != null && !isExpired(entry, clock.getAsLong());
+  }
+
+  /**
+   * @param key key of the entry
+   * @return cached value or {@code null} if there is no (unexpired) entry for the key
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      missCount++;
+      return null;
+    }
+    if (isExpired(entry, clock.getAsLong())) {
+      remove(key);
+      expirationCount++;
+      missCount++;
+      return null;
+    }
+    evictionPolicy.onAccess(key);
+    hitCount++;
+    return entry.value;
+  }
+
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(hitCount, missCount, evictionCount, expirationCount, entries.size());
+  }
+
+  /**
+   * @return total weight of the entries, 0 if the cache is not bounded by weight
+   */
+  public synchronized long getWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * @param key key of the entry
+   * @return {@code true} if an entry has been removed
+   */
+  public synchronized boolean invalidate(K key) {
+    return remove(key);
+  }
+
+  /**
+   * @param condition condition on the keys of the entries to be removed
+   * @return number of removed entries
+   */
+  public synchronized int invalidateIf(Predicate<K> condition) {
+    int removed = 0;
+    for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<K, Entry<V>> entry = it.next();
+      if (condition.test(entry.getKey())) {
+        it.remove();
+        totalWeight -= entry.getValue().weight;
+        evictionPolicy.onRemove(entry.getKey());
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  private boolean isExpired(Entry<V> entry, long now) {
+    return ttlNanos > 0 && now - entry.expiresAt >= 0;
+  }
+
+  private boolean isFull(long additionalWeight) {
+    return entries.size() >= maxEntries || totalWeight + additionalWeight > maxWeight;
+  }
+
+  /**
+   * Add or replace an entry. If the cache is full, expired entries are dropped first, then the
+   * eviction policy is asked for victims. A value heavier than the maximum weight is not cached.
+   *
+   * @param key key of the entry
+   * @param value value to be cached, must not be {@code null}
+   */
+  public synchronized void put(K key, V value) {
+    long now = clock.getAsLong();
+    long weight = weigher.applyAsLong(value);
+    remove(key);
+    if (weight > maxWeight) {
+      return;
+    }
+    if (isFull(weight)) {
+      removeExpired(now);
+      while (isFull(weight)) {
+        K victim = evictionPolicy.selectVictim();
+        if (victim == null) {
+          break;
+        }
+        remove(victim);
+        evictionCount++;
+      }
+    }
+    entries.put(key, new Entry<>(value, now + ttlNanos, weight));
+    totalWeight += weight;
+    evictionPolicy.onInsert(key);
+  }
+
+  private boolean remove(K key) {
+    Entry<V> entry = entries.remove(key);
+    if (entry == null) {
+      return false;
+    }
+    totalWeight -= entry.weight;
+    evictionPolicy.onRemove(key);
+    return true;
+  }
+
+  private void removeExpired(long now) {
+    for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<K, Entry<V>> entry = it.next();
+      if (isExpired(entry.getValue(), now)) {
+        it.remove();
+        totalWeight -= entry.getValue().weight;
+        evictionPolicy.onRemove(entry.getKey());
+        expirationCount++;
+      }
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+}
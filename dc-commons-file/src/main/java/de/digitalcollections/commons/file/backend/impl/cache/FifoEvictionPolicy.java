@@ -0,0 +1,30 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/** Evicts the oldest inserted entry first, regardless of how often it has been read. */
+public class FifoEvictionPolicy<K> implements EvictionPolicy<K> {
+
+  private final LinkedHashSet<K> keys = new LinkedHashSet<>();
+
+  @Override
+  public void onAccess(K key) {}
+
+  @Override
+  public void onInsert(K key) {
+    keys.remove(key);
+    keys.add(key);
+  }
+
+  @Override
+  public void onRemove(K key) {
+    keys.remove(key);
+  }
+
+  @Override
+  public K selectVictim() {
+    Iterator<K> it = keys.iterator();
+    return it.hasNext() ? it.next() : null;
+  }
+}
@@ -0,0 +1,63 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Evicts the least frequently used entry first, of entries used equally often the one inserted
+ * first. Keeps frequently read entries even if a burst of single reads passes through the cache.
+ */
+public class LfuEvictionPolicy<K> implements EvictionPolicy<K> {
+
+  private static final class Usage<K> {
+
+    private final K key;
+    private long count;
+    private final long sequence;
+
+    Usage(K key, long sequence) {
+      this.key = key;
+      this.sequence = sequence;
+    }
+  }
+
+  private final Map<K, Usage<K>> usages = new HashMap<>();
+  private final TreeSet<Usage<K>> order =
+      new TreeSet<>(
+          Comparator.<Usage<K>>comparingLong(usage -> usage.count)
+              .thenComparingLong(usage -> usage.sequence));
+  private long sequence;
+
+  @Override
+  public void onAccess(K key) {
+    Usage<K> usage = usages.get(key);
+    if (usage != null) {
+      order.remove(usage);
+      usage.count++;
+      order.add(usage);
+    }
+  }
+
+  @Override
+  public void onInsert(K key) {
+    onRemove(key);
+    Usage<K> usage = new Usage<>(key, sequence++);
+    usages.put(key, usage);
+    order.add(usage);
+  }
+
+  @Override
+  public void onRemove(K key) {
+    Usage<K> usage = usages.remove(key);
+    if (usage != null) {
+      order.remove(usage);
+    }
+  }
+
+  @Override
+  public K selectVictim() {
+    return order.isEmpty() ? null : order.first().key;
+  }
+}
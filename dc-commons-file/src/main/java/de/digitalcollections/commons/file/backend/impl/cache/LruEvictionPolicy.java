@@ -0,0 +1,34 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/** Evicts the least recently used entry first. */
+public class LruEvictionPolicy<K> implements EvictionPolicy<K> {
+
+  private final LinkedHashSet<K> keys = new LinkedHashSet<>();
+
+  @Override
+  public void onAccess(K key) {
+    if (keys.remove(key)) {
+      keys.add(key);
+    }
+  }
+
+  @Override
+  public void onInsert(K key) {
+    keys.remove(key);
+    keys.add(key);
+  }
+
+  @Override
+  public void onRemove(K key) {
+    keys.remove(key);
+  }
+
+  @Override
+  public K selectVictim() {
+    Iterator<K> it = keys.iterator();
+    return it.hasNext() ? it.next() : null;
+  }
+}
@@ -0,0 +1,95 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+import de.digitalcollections.model.exception.ResourceIOException;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the call, callers arriving
+ * while it is running wait for it and share its result or exception instead of running the same
+ * call again. Nothing is cached, a call arriving after the running one has finished runs anew.
+ *
+ * <p>Shared results are handed to several threads, so they have to be immutable or copied by the
+ * callers.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the results
+ */
+public class SingleFlight<K, V> {
+
+  /**
+   * Work to be done once for all concurrent callers.
+   *
+   * @param <V> type of the result
+   */
+  @FunctionalInterface
+  public interface Call<V> {
+
+    V call() throws ResourceIOException, ResourceNotFoundException;
+  }
+
+  private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+  private final AtomicLong sharedCount = new AtomicLong();
+
+  private static <V> V await(CompletableFuture<V> running)
+      throws ResourceIOException, ResourceNotFoundException {
+    try {
+      return running.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResourceIOException("Interrupted while waiting for a concurrent call", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ResourceIOException) {
+        throw (ResourceIOException) cause;
+      }
+      if (cause instanceof ResourceNotFoundException) {
+        throw (ResourceNotFoundException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ResourceIOException(cause);
+    }
+  }
+
+  /**
+   * @param key key identifying equal calls
+   * @param call work to be done if no equal call is running
+   * @return result of this or the concurrently running call
+   * @throws ResourceIOException thrown by this or the concurrently running call
+   * @throws ResourceNotFoundException thrown by this or the concurrently running call
+   */
+  public V execute(K key, Call<V> call) throws ResourceIOException, ResourceNotFoundException {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> running = calls.putIfAbsent(key, future);
+    if (running != null) {
+      sharedCount.incrementAndGet();
+      return await(running);
+    }
+    try {
+      V result = call.call();
+      future.complete(result);
+      return result;
+    } catch (ResourceIOException | ResourceNotFoundException | RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      calls.remove(key, future);
+    }
+  }
+
+  /**
+   * @return number of callers that have shared the result of a concurrently running call
+   */
+  public long getSharedCount() {
+    return sharedCount.get();
+  }
+}
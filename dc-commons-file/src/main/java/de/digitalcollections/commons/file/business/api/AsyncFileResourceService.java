@@ -0,0 +1,58 @@
+package de.digitalcollections.commons.file.business.api;
+
+import de.digitalcollections.model.file.MimeType;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import org.w3c.dom.Document;
+
+/**
+ * Non-blocking counterpart of {@link FileResourceService} for resolving and reading many file
+ * resources concurrently. All methods return immediately; the blocking work is done on an executor.
+ * Futures complete exceptionally with the exceptions declared by the corresponding {@link
+ * FileResourceService} methods.
+ */
+public interface AsyncFileResourceService {
+
+  /**
+   * @param identifier identifier of FileResource, used to lookup URI for FileResource
+   * @param mimeType mimetype of the FileResource
+   * @return future of the FileResource implementation matching mimetype and URI resolved using
+   *     identifier
+   * @see FileResourceService#find(String, MimeType)
+   */
+  CompletableFuture<FileResource> find(String identifier, MimeType mimeType);
+
+  /**
+   * Unlike the other methods this one does not occupy a thread of the executor while reading, see
+   * {@link FileResourceService#readAsync(FileResource)}.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return future of the binary data of FileResource as ByteBuffer, positioned at 0
+   * @see FileResourceService#getAsByteBuffer(FileResource)
+   */
+  CompletableFuture<ByteBuffer> getAsByteBuffer(FileResource resource);
+
+  /**
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return future of the binary data of FileResource as byte[]
+   * @see FileResourceService#getAsBytes(FileResource)
+   */
+  CompletableFuture<byte[]> getAsBytes(FileResource resource);
+
+  /**
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return future of the binary data of FileResource parsed as XML-Document
+   * @see FileResourceService#getAsDocument(FileResource)
+   */
+  CompletableFuture<Document> getAsDocument(FileResource resource);
+
+  /**
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param charset encoding of FileResource data
+   * @return future of the binary data of FileResource as String
+   * @see FileResourceService#getAsString(FileResource, Charset)
+   */
+  CompletableFuture<String> getAsString(FileResource resource, Charset charset);
+}
@@ -0,0 +1,62 @@
+package de.digitalcollections.commons.file.business.api;
+
+import de.digitalcollections.model.exception.ResourceIOException;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+
+/**
+ * Digests of the contents of file resources, e.g. for strong ETags of HTTP conditional requests.
+ * Unlike validators derived from the last modification, a digest does not change if a file is
+ * written again with the same content (e.g. by a deployment).
+ */
+public interface ContentDigestService {
+
+  /**
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return digest of the content, as lower case hex string
+   * @throws ResourceIOException if the content can not be read
+   * @throws ResourceNotFoundException if the resource does not exist
+   */
+  String getDigest(FileResource resource) throws ResourceIOException, ResourceNotFoundException;
+
+  /**
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return strong entity tag of the content including the quotes, e.g. for an {@code ETag} header
+   * @throws ResourceIOException if the content can not be read
+   * @throws ResourceNotFoundException if the resource does not exist
+   */
+  default String getETag(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    return "\"" + getDigest(resource) + "\"";
+  }
+
+  /**
+   * Evaluate the entity tags of an {@code If-None-Match} header against the content of a resource
+   * (weak comparison, as required for {@code If-None-Match}).
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param entityTags comma separated entity tags or {@code *}, e.g. the value of an {@code
+   *     If-None-Match} header
+   * @return true if a tag matches the current content, i.e. the client's copy is up to date (and
+   *     e.g. {@code 304 Not Modified} can be sent)
+   * @throws ResourceIOException if the content can not be read
+   * @throws ResourceNotFoundException if the resource does not exist
+   */
+  default boolean matchesETag(FileResource resource, String entityTags)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (entityTags == null || entityTags.isBlank()) {
+      return false;
+    }
+    String etag = getETag(resource);
+    for (String entityTag : entityTags.split(",")) {
+      String tag = entityTag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if ("*".equals(tag) || etag.equals(tag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
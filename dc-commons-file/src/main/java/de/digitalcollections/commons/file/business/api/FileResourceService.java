@@ -1,18 +1,47 @@
 package de.digitalcollections.commons.file.business.api;
 
+import de.digitalcollections.commons.file.backend.api.BatchFindResult;
 import de.digitalcollections.model.exception.ResourceIOException;
 import de.digitalcollections.model.exception.ResourceNotFoundException;
 import de.digitalcollections.model.file.MimeType;
 import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXResult;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.w3c.dom.Document;
+import org.xml.sax.ContentHandler;
 
 /**
  * Service providing methods for creating FileResource instances and reading binary data of a
  * FileResource.
+ *
+ * <p>Methods added after the initial set have default implementations built on {@link
+ * #getInputStream(FileResource)}, {@link #getAsBytes(FileResource)} and {@link #find(String,
+ * MimeType)}, so that existing implementations keep working; override them for efficient access.
  */
 public interface FileResourceService {
 
@@ -93,6 +122,36 @@ public interface FileResourceService {
     return result;
   }
 
+  /**
+   * Look up many identifiers at once, e.g. all pages of a book. Compared to calling {@link
+   * #find(String, MimeType)} for every identifier, directories shared by several candidates are
+   * listed only once and the file system is accessed in parallel (see {@code
+   * resource-repository.reading.batch-parallelism}).
+   *
+   * <p>The default implementation looks up the identifiers one by one.
+   *
+   * @param identifiers identifiers of FileResources
+   * @param mimeType mimetype of the FileResources
+   * @return found FileResources and the exceptions of failed lookups, by identifier
+   * @throws ResourceIOException thrown if mimetype is missing or the lookup has been interrupted
+   */
+  default BatchFindResult find(Collection<String> identifiers, MimeType mimeType)
+      throws ResourceIOException {
+    if (mimeType == null) {
+      throw new ResourceIOException("missing mimetype");
+    }
+    Map<String, FileResource> fileResources = new LinkedHashMap<>();
+    Map<String, Exception> failures = new LinkedHashMap<>();
+    for (String identifier : new LinkedHashSet<>(identifiers)) {
+      try {
+        fileResources.put(identifier, find(identifier, mimeType));
+      } catch (ResourceIOException | ResourceNotFoundException | RuntimeException e) {
+        failures.put(identifier, e);
+      }
+    }
+    return new BatchFindResult(fileResources, failures);
+  }
+
   /**
    * @param identifier identifier of FileResource, used to lookup URI for FileResource
    * @param mimeType mimetype of the FileResource
@@ -128,6 +187,25 @@ public interface FileResourceService {
    */
   FileResource findOrCreate(String identifier, MimeType mimeType) throws ResourceIOException;
 
+  /**
+   * Convenience method for directly getting FileResource binary data as ByteBuffer. Local files at
+   * least as large as the configured memory mapping threshold are returned as read-only {@link
+   * java.nio.MappedByteBuffer}, so their content is served from the page cache of the operating
+   * system instead of being copied into the Java heap. Smaller files are read into a heap buffer of
+   * exactly the size of the file.
+   *
+   * <p>The default implementation wraps {@link #getAsBytes(FileResource)}.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return binary data of FileResource, positioned at 0
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading FileResource data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default ByteBuffer getAsByteBuffer(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    return ByteBuffer.wrap(getAsBytes(resource));
+  }
+
   /**
    * Convenience method for directly getting FileResource binary data as byte[].
    *
@@ -149,6 +227,84 @@ public interface FileResourceService {
   Document getAsDocument(FileResource resource)
       throws ResourceIOException, ResourceNotFoundException;
 
+  /**
+   * Streaming access to XML data without building a DOM, e.g. for extracting parts of large METS
+   * files. The reader is namespace aware and hardened like {@link #getAsDocument(FileResource)}. It
+   * must be closed by the caller, which also closes the underlying stream.
+   *
+   * <p>The default implementation rejects DTDs altogether instead of only external entities.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return StAX reader on the binary data of FileResource
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading FileResource data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default XMLStreamReader getAsXmlStreamReader(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    InputStream is = getInputStream(resource);
+    try {
+      XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+      inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+      inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      XMLStreamReader reader = inputFactory.createXMLStreamReader(resource.getUri().toString(), is);
+      return new StreamReaderDelegate(reader) {
+        @Override
+        public void close() throws XMLStreamException {
+          try {
+            super.close();
+          } finally {
+            try {
+              is.close();
+            } catch (IOException e) {
+              throw new XMLStreamException("Cannot close input stream of " + resource.getUri(), e);
+            }
+          }
+        }
+      };
+    } catch (XMLStreamException | RuntimeException ex) {
+      try {
+        is.close();
+      } catch (IOException e) {
+        ex.addSuppressed(e);
+      }
+      throw new ResourceIOException(
+          "Cannot read document from resolved resource '" + resource.getUri().toString() + "'", ex);
+    }
+  }
+
+  /**
+   * Parse XML data with SAX without building a DOM. The parser is namespace aware and hardened like
+   * {@link #getAsDocument(FileResource)}. To stop parsing early, the content handler may throw a
+   * {@link org.xml.sax.SAXException}, which is passed on as cause of a ResourceIOException.
+   *
+   * <p>The default implementation emits the events of {@link #getAsDocument(FileResource)}, so it
+   * builds the DOM after all.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param contentHandler receiver of the SAX events
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading or parsing FileResource
+   *     data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default void parseXml(FileResource resource, ContentHandler contentHandler)
+      throws ResourceIOException, ResourceNotFoundException {
+    Document document = getAsDocument(resource);
+    try {
+      TransformerFactory transformerFactory = TransformerFactory.newInstance();
+      transformerFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      transformerFactory
+          .newTransformer()
+          .transform(
+              new DOMSource(document, resource.getUri().toString()), new SAXResult(contentHandler));
+    } catch (TransformerException ex) {
+      // a SAXException of the content handler is the cause
+      throw new ResourceIOException(
+          "Cannot parse document from resolved resource '" + resource.getUri().toString() + "'",
+          ex.getCause() != null ? ex.getCause() : ex);
+    }
+  }
+
   /**
    * Convenience method for directly getting FileResource binary data as String.
    *
@@ -178,6 +334,55 @@ public interface FileResourceService {
    */
   InputStream getInputStream(URI resourceUri) throws ResourceIOException, ResourceNotFoundException;
 
+  /**
+   * Open a part of the binary data of a FileResource, e.g. for answering HTTP range requests. Local
+   * files are positioned directly at the offset, for {@code http(s):} resources a range request is
+   * issued. Only other resources are read and discarded up to the offset.
+   *
+   * <p>The default implementation skips and bounds the {@link #getInputStream(FileResource)}.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param offset position of the first byte to read
+   * @param length maximum number of bytes to read, -1 for reading up to the end
+   * @return InputStream for reading the requested part of the FileResource data, empty if offset is
+   *     beyond the end or length is 0 (then without accessing the resource)
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading FileResource data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default InputStream getInputStream(FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    if (offset < 0 || length < -1) {
+      throw new IllegalArgumentException("Invalid range: offset " + offset + ", length " + length);
+    }
+    if (length == 0) {
+      return InputStream.nullInputStream();
+    }
+    InputStream is = getInputStream(resource);
+    try {
+      IOUtils.skip(is, offset);
+      return BoundedInputStream.builder().setInputStream(is).setMaxCount(length).get();
+    } catch (IOException e) {
+      IOUtils.closeQuietly(is);
+      throw new ResourceIOException("Could not read " + resource.getUri(), e);
+    }
+  }
+
+  /**
+   * Channel based counterpart of {@link #getInputStream(FileResource, long, long)}.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param offset position of the first byte to read
+   * @param length maximum number of bytes to read, -1 for reading up to the end
+   * @return channel for reading the requested part of the FileResource data
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading FileResource data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default ReadableByteChannel getReadableByteChannel(
+      FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    return Channels.newChannel(getInputStream(resource, offset, length));
+  }
+
   /**
    * @param resource FileResource containing URI for accessing FileResource data
    * @return Reader for InputStream of FileResource data
@@ -185,4 +390,122 @@ public interface FileResourceService {
    * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
    */
   Reader getReader(FileResource resource) throws ResourceIOException, ResourceNotFoundException;
+
+  /**
+   * Discard everything cached about the given identifier, e.g. after a file for it has been
+   * written, so that the next lookup hits the storage again. The default implementation caches
+   * nothing and does nothing.
+   *
+   * @param identifier identifier of FileResource
+   */
+  default void invalidate(String identifier) {}
+
+  /**
+   * Publish the binary data of a FileResource in chunks as requested by the subscriber, e.g. for
+   * streaming large files to slow clients without occupying a thread per client. Chunks are read on
+   * an executor only while there is demand. The publisher is cold: every subscription reads the
+   * data from the beginning.
+   *
+   * <p>The chunk buffers are recycled: a published buffer is only valid until {@link
+   * Flow.Subscriber#onNext(Object)} returns, subscribers keeping the data have to copy it.
+   *
+   * <p>The default implementation slices the content of {@link #readAsync(FileResource)}, which is
+   * read into memory completely.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param chunkSize maximum number of bytes per chunk
+   * @return publisher of the chunks, signalling the exceptions declared by {@link
+   *     #getReadableByteChannel(FileResource, long, long)} by {@link
+   *     Flow.Subscriber#onError(Throwable)}
+   */
+  default Flow.Publisher<ByteBuffer> publish(FileResource resource, int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive, but was " + chunkSize);
+    }
+    return new SlicingPublisher(() -> readAsync(resource), chunkSize);
+  }
+
+  /**
+   * Read the binary data of a FileResource without blocking the calling thread. Contents in the
+   * in-memory content cache are returned immediately (read-only), others are read by {@link
+   * de.digitalcollections.commons.file.backend.api.FileResourceRepository#readAsync(FileResource)}.
+   *
+   * <p>The default implementation reads by {@link #getAsByteBuffer(FileResource)} on the calling
+   * thread.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @return future of the binary data of FileResource, positioned at 0; completes exceptionally
+   *     with the exceptions declared by {@link #getAsByteBuffer(FileResource)}
+   */
+  default CompletableFuture<ByteBuffer> readAsync(FileResource resource) {
+    try {
+      return CompletableFuture.completedFuture(getAsByteBuffer(resource));
+    } catch (ResourceIOException | ResourceNotFoundException | RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Write a part of the binary data of a FileResource to a channel, e.g. for answering HTTP range
+   * requests. Like {@link #transferTo(FileResource, WritableByteChannel)} local files are
+   * transferred without passing the Java heap.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param offset position of the first byte to transfer
+   * @param length maximum number of bytes to transfer, -1 for transferring up to the end
+   * @param target channel to write to, should be in blocking mode
+   * @return number of transferred bytes
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading or writing data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default long transferTo(
+      FileResource resource, long offset, long length, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    try (InputStream is = getInputStream(resource, offset, length)) {
+      return is.transferTo(Channels.newOutputStream(target));
+    } catch (ResourceIOException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not transfer " + resource.getUri(), e);
+    }
+  }
+
+  /**
+   * Write the binary data of a FileResource to a channel. For local files ({@code file:} URIs) the
+   * data is transferred by {@link java.nio.channels.FileChannel#transferTo(long, long,
+   * WritableByteChannel)}, which lets the operating system copy it directly (e.g. by sendfile)
+   * without passing the Java heap. Other resources are copied through a buffer. The target channel
+   * is not closed.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param target channel to write to, should be in blocking mode
+   * @return number of transferred bytes
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading or writing data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   */
+  default long transferTo(FileResource resource, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    return transferTo(resource, 0, -1, target);
+  }
+
+  /**
+   * Write the binary data of a FileResource to an output stream. The output stream is not closed.
+   *
+   * @param resource FileResource containing URI for accessing FileResource data
+   * @param target stream to write to
+   * @return number of transferred bytes
+   * @throws ResourceIOException thrown if an IOExcpetion appears at reading or writing data
+   * @throws ResourceNotFoundException thrown if FileResource at resolved URI does not exist
+   * @see #transferTo(FileResource, WritableByteChannel)
+   */
+  default long transferTo(FileResource resource, OutputStream target)
+      throws ResourceIOException, ResourceNotFoundException {
+    try (InputStream is = getInputStream(resource)) {
+      return is.transferTo(target);
+    } catch (ResourceIOException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not transfer " + resource.getUri(), e);
+    }
+  }
 }
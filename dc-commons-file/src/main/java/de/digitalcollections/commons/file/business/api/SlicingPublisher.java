@@ -0,0 +1,116 @@
+package de.digitalcollections.commons.file.business.api;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Publishes content read completely into memory in slices of at most the chunk size, as requested
+ * by the subscriber. Backs the default implementation of {@link FileResourceService#publish};
+ * signals are delivered on the thread requesting or completing the read.
+ */
+final class SlicingPublisher implements Flow.Publisher<ByteBuffer> {
+
+  private final int chunkSize;
+  private final Supplier<CompletableFuture<ByteBuffer>> source;
+
+  SlicingPublisher(Supplier<CompletableFuture<ByteBuffer>> source, int chunkSize) {
+    this.source = source;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber must not be null");
+    SliceSubscription subscription = new SliceSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    source
+        .get()
+        .whenComplete(
+            (content, error) -> {
+              if (error != null) {
+                subscription.pendingError =
+                    error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error;
+              } else {
+                subscription.content = content.asReadOnlyBuffer();
+              }
+              subscription.drain();
+            });
+  }
+
+  private final class SliceSubscription implements Flow.Subscription {
+
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger work = new AtomicInteger();
+    private final Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    private volatile boolean cancelled;
+    private volatile ByteBuffer content;
+    private volatile Throwable pendingError;
+
+    // only accessed by the thread draining
+    private boolean done;
+
+    SliceSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        pendingError =
+            new IllegalArgumentException("Requested number of chunks must be positive, was " + n);
+      } else {
+        demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      }
+      drain();
+    }
+
+    private void drain() {
+      // signals are serialized: only one thread drains, others leave their work to it
+      if (work.getAndIncrement() != 0) {
+        return;
+      }
+      do {
+        if (!done && !cancelled) {
+          emit();
+        }
+      } while (work.decrementAndGet() != 0);
+    }
+
+    private void emit() {
+      if (pendingError != null) {
+        done = true;
+        subscriber.onError(pendingError);
+        return;
+      }
+      ByteBuffer buffer = content;
+      if (buffer == null) {
+        return;
+      }
+      while (!cancelled && demand.get() > 0 && buffer.hasRemaining()) {
+        ByteBuffer chunk = buffer.slice();
+        chunk.limit(Math.min(chunkSize, chunk.remaining()));
+        buffer.position(buffer.position() + chunk.remaining());
+        demand.decrementAndGet();
+        subscriber.onNext(chunk);
+      }
+      if (!cancelled && !buffer.hasRemaining()) {
+        done = true;
+        subscriber.onComplete();
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import de.digitalcollections.commons.file.backend.impl.FileResourceIoExecutor;
+import de.digitalcollections.commons.file.business.api.AsyncFileResourceService;
+import de.digitalcollections.commons.file.business.api.FileResourceService;
+import de.digitalcollections.model.exception.ResourceIOException;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import de.digitalcollections.model.file.MimeType;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+
+/**
+ * Runs the blocking methods of a {@link FileResourceService} on an executor, by default the shared
+ * {@link FileResourceIoExecutor}. The wrapped service (and thus its {@link
+ * de.digitalcollections.commons.file.backend.api.FileResourceRepository} and caches) is shared with
+ * blocking callers.
+ */
+@Service
+public class AsyncFileResourceServiceImpl implements AsyncFileResourceService {
+
+  @FunctionalInterface
+  private interface ResourceSupplier<T> {
+
+    T get() throws ResourceIOException, ResourceNotFoundException;
+  }
+
+  private final Executor executor;
+  private final FileResourceService service;
+
+  @Autowired
+  public AsyncFileResourceServiceImpl(
+      FileResourceService service, FileResourceIoExecutor ioExecutor) {
+    this(service, (Executor) ioExecutor);
+  }
+
+  /**
+   * @param service service doing the actual work
+   * @param executor executor to run the work on, not shut down by this service
+   */
+  public AsyncFileResourceServiceImpl(FileResourceService service, Executor executor) {
+    this.service = service;
+    this.executor = executor;
+  }
+
+  @Override
+  public CompletableFuture<FileResource> find(String identifier, MimeType mimeType) {
+    return supply(() -> service.find(identifier, mimeType));
+  }
+
+  @Override
+  public CompletableFuture<ByteBuffer> getAsByteBuffer(FileResource resource) {
+    return service.readAsync(resource);
+  }
+
+  @Override
+  public CompletableFuture<byte[]> getAsBytes(FileResource resource) {
+    return supply(() -> service.getAsBytes(resource));
+  }
+
+  @Override
+  public CompletableFuture<Document> getAsDocument(FileResource resource) {
+    return supply(() -> service.getAsDocument(resource));
+  }
+
+  @Override
+  public CompletableFuture<String> getAsString(FileResource resource, Charset charset) {
+    return supply(() -> service.getAsString(resource, charset));
+  }
+
+  private <T> CompletableFuture<T> supply(ResourceSupplier<T> supplier) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      executor.execute(
+          () -> {
+            try {
+              future.complete(supplier.get());
+            } catch (Throwable e) {
+              future.completeExceptionally(e);
+            }
+          });
+    } catch (RuntimeException e) {
+      // e.g. RejectedExecutionException after shutdown
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+}
@@ -0,0 +1,58 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Thread-safe pool of equally sized buffers, used to avoid allocating a new buffer for each read of
+ * a file resource. If the pool is empty, a new buffer is allocated; buffers returned to a full pool
+ * are left to the garbage collector.
+ */
+public class ByteBufferPool {
+
+  private final int bufferSize;
+  private final BlockingQueue<ByteBuffer> buffers;
+  private final boolean direct;
+
+  /**
+   * @param bufferSize capacity of the buffers
+   * @param maxPooled maximum number of idle buffers kept in the pool
+   * @param direct allocate direct (off-heap) instead of heap buffers
+   */
+  public ByteBufferPool(int bufferSize, int maxPooled, boolean direct) {
+    this.bufferSize = bufferSize;
+    this.buffers = new ArrayBlockingQueue<>(maxPooled);
+    this.direct = direct;
+  }
+
+  /**
+   * @return a cleared buffer from the pool or a newly allocated one
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null) {
+      return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Return a buffer to the pool. It must not be used by the caller afterwards.
+   *
+   * @param buffer buffer acquired from this pool
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer != null
+        && buffer.capacity() == bufferSize
+        && buffer.isDirect() == direct
+        && !buffer.isReadOnly()) {
+      buffers.offer(buffer);
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import de.digitalcollections.model.exception.ResourceIOException;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Publishes the content of a channel in chunks as requested by the subscriber. Chunks are only read
+ * while there is demand, so a slow subscriber does not occupy a thread while it is not ready for
+ * more. Reading and signalling is done on an executor, at most {@value #MAX_CHUNKS_PER_RUN} chunks
+ * per task, so that a few threads serve many subscriptions in turn.
+ *
+ * <p>Each subscription reads into one buffer of the pool, which is reused for all of its chunks and
+ * returned to the pool at the end. Thus a published buffer is only valid until {@link
+ * Flow.Subscriber#onNext(Object)} returns, subscribers keeping the data have to copy it.
+ */
+public class ByteBufferPublisher implements Flow.Publisher<ByteBuffer> {
+
+  /** Source of the content, opened for every subscription. */
+  @FunctionalInterface
+  public interface ChannelSource {
+
+    ReadableByteChannel open() throws ResourceIOException, ResourceNotFoundException;
+  }
+
+  private static final int MAX_CHUNKS_PER_RUN = 16;
+
+  private final int chunkSize;
+  private final Executor executor;
+  private final ByteBufferPool pool;
+  private final ChannelSource source;
+
+  /**
+   * @param source source of the content
+   * @param pool pool of the buffers, whose size is the chunk size
+   * @param executor executor reading the chunks and signalling the subscribers
+   */
+  public ByteBufferPublisher(ChannelSource source, ByteBufferPool pool, Executor executor) {
+    this(source, pool, pool.getBufferSize(), executor);
+  }
+
+  /**
+   * @param source source of the content
+   * @param pool pool of the buffers, at least as large as the chunk size
+   * @param chunkSize maximum number of bytes per chunk
+   * @param executor executor reading the chunks and signalling the subscribers
+   */
+  public ByteBufferPublisher(
+      ChannelSource source, ByteBufferPool pool, int chunkSize, Executor executor) {
+    if (chunkSize <= 0 || chunkSize > pool.getBufferSize()) {
+      throw new IllegalArgumentException(
+          "chunkSize must be positive and at most "
+              + pool.getBufferSize()
+              + ", but was "
+              + chunkSize);
+    }
+    this.source = source;
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber must not be null");
+    ChunkSubscription subscription = new ChunkSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+  }
+
+  private final class ChunkSubscription implements Flow.Subscription {
+
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private volatile Throwable pendingError;
+
+    // only accessed by the task running
+    private ByteBuffer buffer;
+    private ReadableByteChannel channel;
+
+    ChunkSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      // the channel is closed by the task, which may be reading from it right now
+      schedule();
+    }
+
+    private void finish(Throwable error) {
+      done = true;
+      IOUtils.closeQuietly(channel);
+      pool.release(buffer);
+      channel = null;
+      buffer = null;
+      if (cancelled) {
+        return;
+      }
+      if (error == null) {
+        subscriber.onComplete();
+      } else {
+        subscriber.onError(error);
+      }
+    }
+
+    /**
+     * @return {@code false} if the content has ended
+     */
+    private boolean readChunk() throws IOException {
+      buffer.clear().limit(chunkSize);
+      int count = 0;
+      while (buffer.hasRemaining() && count >= 0) {
+        count = channel.read(buffer);
+      }
+      buffer.flip();
+      if (buffer.hasRemaining()) {
+        demand.decrementAndGet();
+        subscriber.onNext(buffer);
+      }
+      return count >= 0;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        pendingError =
+            new IllegalArgumentException("Requested number of chunks must be positive, was " + n);
+      } else {
+        demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      }
+      schedule();
+    }
+
+    private void run() {
+      try {
+        if (done) {
+          return;
+        }
+        if (cancelled || pendingError != null) {
+          finish(pendingError);
+          return;
+        }
+        try {
+          if (channel == null) {
+            channel = source.open();
+            buffer = pool.acquire();
+          }
+          for (int chunks = 0; chunks < MAX_CHUNKS_PER_RUN; chunks++) {
+            if (cancelled || demand.get() == 0) {
+              break;
+            }
+            if (!readChunk()) {
+              finish(null);
+              return;
+            }
+          }
+          if (cancelled) {
+            finish(null);
+          }
+        } catch (ResourceNotFoundException | IOException | RuntimeException e) {
+          // ResourceIOException is an IOException
+          finish(e);
+        }
+      } finally {
+        scheduled.set(false);
+      }
+      // demand (or a cancellation) may have arrived after the loop has checked it
+      if (!done && (cancelled || pendingError != null || demand.get() > 0)) {
+        schedule();
+      }
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this::run);
+        } catch (RuntimeException e) {
+          // e.g. RejectedExecutionException after shutdown, no task is running
+          if (!done) {
+            finish(e);
+          }
+          scheduled.set(false);
+        }
+      }
+    }
+  }
+}
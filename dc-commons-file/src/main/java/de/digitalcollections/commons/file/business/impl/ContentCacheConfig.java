@@ -0,0 +1,74 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import de.digitalcollections.commons.file.backend.impl.ResolutionCacheConfig;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration of the in-memory cache of small file contents used by {@link
+ * FileResourceServiceImpl}, bound to {@code resource-repository.content-cache}. Caching is disabled
+ * by default.
+ *
+ * <p>Contents are cached by URI and last modification of the file resource, so a resource found
+ * again after its file has been modified is read anew. Resources without last modification are only
+ * refreshed after the time to live.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   content-cache:
+ *     enabled: true
+ *     ttl: 10m
+ *     max-entries: 5000
+ *     max-size: 128MB
+ *     max-resource-size: 256KB
+ * </pre>
+ */
+@Component
+@ConfigurationProperties("resource-repository.content-cache")
+public class ContentCacheConfig extends ResolutionCacheConfig {
+
+  private DataSize maxResourceSize = DataSize.ofKilobytes(256);
+  private DataSize maxSize = DataSize.ofMegabytes(64);
+  private OffHeapContentCacheConfig offHeap = new OffHeapContentCacheConfig();
+
+  public ContentCacheConfig() {
+    super(false, Duration.ofMinutes(5), 10000);
+  }
+
+  /**
+   * @return maximum size of a single resource to be cached
+   */
+  public DataSize getMaxResourceSize() {
+    return maxResourceSize;
+  }
+
+  /**
+   * @return maximum total size of the cached contents
+   */
+  public DataSize getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return configuration of the off-heap tier for larger resources
+   */
+  public OffHeapContentCacheConfig getOffHeap() {
+    return offHeap;
+  }
+
+  public void setMaxResourceSize(DataSize maxResourceSize) {
+    this.maxResourceSize = maxResourceSize;
+  }
+
+  public void setMaxSize(DataSize maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public void setOffHeap(OffHeapContentCacheConfig offHeap) {
+    this.offHeap = offHeap;
+  }
+}
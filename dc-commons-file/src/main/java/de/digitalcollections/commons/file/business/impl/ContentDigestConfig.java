@@ -0,0 +1,80 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the content digests of {@link ContentDigestServiceImpl}, bound to {@code
+ * resource-repository.digest}.
+ *
+ * <p>By default the most recently used digests are only kept in memory. If persistent, digests are
+ * also written to files in the configured directory, so that a file is only hashed again after its
+ * size or last modification has changed, across restarts as well. A directory is required then; it
+ * should not be a temporary directory cleaned on reboot.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   digest:
+ *     algorithm: SHA-256
+ *     directory: /var/cache/my-app/digests
+ *     max-entries: 100000
+ *     persistent: true
+ * </pre>
+ */
+@Component
+@ConfigurationProperties("resource-repository.digest")
+public class ContentDigestConfig {
+
+  private String algorithm = "SHA-256";
+  private String directory;
+  private int maxEntries = 100_000;
+  private boolean persistent = false;
+
+  /**
+   * @return name of the {@link java.security.MessageDigest} algorithm, e.g. {@code SHA-256} or
+   *     {@code SHA-512}
+   */
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  /**
+   * @return directory the digests are written to if persistent, no default
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return maximum number of digests kept in memory, least recently used ones are dropped beyond
+   *     it (and read from their files again if persistent)
+   */
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * @return true if digests are kept across restarts, otherwise they are only kept in memory
+   */
+  public boolean isPersistent() {
+    return persistent;
+  }
+
+  public void setAlgorithm(String algorithm) {
+    this.algorithm = algorithm;
+  }
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  public void setPersistent(boolean persistent) {
+    this.persistent = persistent;
+  }
+}
@@ -0,0 +1,295 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import de.digitalcollections.commons.file.backend.impl.cache.ExpiringCache;
+import de.digitalcollections.commons.file.backend.impl.cache.LruEvictionPolicy;
+import de.digitalcollections.commons.file.backend.impl.cache.SingleFlight;
+import de.digitalcollections.commons.file.business.api.ContentDigestService;
+import de.digitalcollections.commons.file.business.api.FileResourceService;
+import de.digitalcollections.model.exception.ResourceIOException;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Computes digests of file resources once per change of their content (see {@link
+ * ContentDigestConfig}).
+ *
+ * <p>A digest is kept together with the size and last modification of the file it was computed from
+ * and reused as long as both are unchanged. For {@code file:} resources, size and last modification
+ * are read from the file system, so a resource found before the file has been changed gets the
+ * digest of the current content. For other resources they are taken from the resource as found;
+ * resources without a known last modification are hashed on every call. The content is read by the
+ * {@link FileResourceService}, like any other read.
+ *
+ * <p>The most recently used digests are kept in memory. If persistent, every digest is also written
+ * to a small file named by its URI, which is read on a miss of the in-memory digests, e.g. after a
+ * restart. Concurrent calls for the same content share one computation.
+ */
+@Service
+public class ContentDigestServiceImpl implements ContentDigestService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ContentDigestServiceImpl.class);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String DIGEST_SUFFIX = ".digest";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static final class Entry {
+
+    private final String digest;
+    private final String version;
+
+    Entry(String version, String digest) {
+      this.version = version;
+      this.digest = digest;
+    }
+  }
+
+  private final String algorithm;
+  private final AtomicLong computationCount = new AtomicLong();
+  private final SingleFlight<String, String> computations = new SingleFlight<>();
+  private final ExpiringCache<URI, Entry> digests;
+  private final Path directory;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final FileResourceService service;
+
+  @Autowired
+  public ContentDigestServiceImpl(FileResourceService service, ContentDigestConfig config) {
+    this.service = service;
+    this.algorithm = config.getAlgorithm();
+    try {
+      MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException("Unsupported digest algorithm " + algorithm, e);
+    }
+    if (config.isPersistent() && config.getDirectory() == null) {
+      throw new IllegalArgumentException("Persistent digests require a directory");
+    }
+    this.directory =
+        config.isPersistent()
+            ? Paths.get(config.getDirectory()).resolve(algorithm.replaceAll("[^A-Za-z0-9-]", "_"))
+            : null;
+    this.digests = new ExpiringCache<>(null, config.getMaxEntries(), new LruEvictionPolicy<>());
+  }
+
+  private String compute(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    computationCount.incrementAndGet();
+    MessageDigest messageDigest = newMessageDigest();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    try (ReadableByteChannel channel = service.getReadableByteChannel(resource, 0, -1)) {
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        messageDigest.update(buffer);
+        buffer.clear();
+      }
+    } catch (ResourceIOException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not compute digest of resource: " + resource, e);
+    }
+    return toHex(messageDigest.digest());
+  }
+
+  /**
+   * @return number of digests computed by reading the content
+   */
+  public long getComputationCount() {
+    return computationCount.get();
+  }
+
+  /**
+   * @return resource with the current size and last modification of a {@code file:} resource, other
+   *     resources as they are
+   */
+  private FileResource getCurrent(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    URI uri = resource.getUri();
+    if (!"file".equals(uri.getScheme())) {
+      return resource;
+    }
+    Path path = Paths.get(uri);
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      throw new ResourceNotFoundException("File " + path + " does not exist");
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not read attributes of " + path, e);
+    }
+    // the content caches of the service are keyed by the last modification, so they never return
+    // the content of a former version
+    FileResource current = service.createByMimeType(resource.getMimeType());
+    current.setUri(uri);
+    current.setFilename(resource.getFilename());
+    current.setSizeInBytes(attributes.size());
+    // same (millisecond) precision as FileResourceRepositoryImpl#find
+    current.setLastModified(
+        Instant.ofEpochMilli(attributes.lastModifiedTime().toMillis())
+            .atOffset(ZoneOffset.UTC)
+            .toLocalDateTime());
+    return current;
+  }
+
+  @Override
+  public String getDigest(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    URI uri = resource.getUri();
+    FileResource current = getCurrent(resource);
+    String version = getVersion(current);
+    if (version == null) {
+      return compute(current);
+    }
+    Entry entry = digests.get(uri);
+    if (entry != null && entry.version.equals(version)) {
+      hitCount.incrementAndGet();
+      return entry.digest;
+    }
+    return computations.execute(
+        uri + "\t" + version,
+        () -> {
+          Entry stored = readEntry(uri);
+          if (stored != null && stored.version.equals(version)) {
+            digests.put(uri, stored);
+            hitCount.incrementAndGet();
+            return stored.digest;
+          }
+          String digest = compute(current);
+          if (!version.equals(getVersion(getCurrent(resource)))) {
+            // modified while reading, the digest may belong to neither version
+            return digest;
+          }
+          Entry computed = new Entry(version, digest);
+          digests.put(uri, computed);
+          writeEntry(uri, computed);
+          return digest;
+        });
+  }
+
+  private Path getFile(URI uri) {
+    String key = UUID.nameUUIDFromBytes(uri.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    // spread over subdirectories, so that no directory gets too large
+    return directory.resolve(key.substring(0, 2)).resolve(key + DIGEST_SUFFIX);
+  }
+
+  /**
+   * @return number of digests taken from memory or from their files
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return size and last modification of the content, {@code null} if unknown
+   */
+  private static String getVersion(FileResource resource) {
+    LocalDateTime lastModified = resource.getLastModified();
+    if (lastModified == null || lastModified.toEpochSecond(ZoneOffset.UTC) == 0) {
+      // unknown, see FileResourceRepositoryImpl#find
+      return null;
+    }
+    return resource.getSizeInBytes() + "\t" + lastModified;
+  }
+
+  private MessageDigest newMessageDigest() {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      // checked by the constructor
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return persisted digest of the URI or {@code null} if there is none
+   */
+  private Entry readEntry(URI uri) {
+    if (directory == null) {
+      return null;
+    }
+    Path file = getFile(uri);
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line = reader.readLine();
+      String[] parts = line == null ? new String[0] : line.split("\t", 4);
+      if (parts.length < 4
+          || parts[0].length() != newMessageDigest().getDigestLength() * 2
+          || !uri.toString().equals(parts[3])) {
+        // unknown format or another URI with the same name
+        return null;
+      }
+      return new Entry(parts[1] + "\t" + parts[2], parts[0]);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      LOGGER.warn("Can not read digest file {}, computing the digest anew", file, e);
+      return null;
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+      hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+    }
+    return new String(hex);
+  }
+
+  /** Write a digest to a temporary file first and rename it, so readers never see partial ones. */
+  private void writeEntry(URI uri, Entry entry) {
+    if (directory == null) {
+      return;
+    }
+    Path file = getFile(uri);
+    Path tempFile = null;
+    try {
+      Files.createDirectories(file.getParent());
+      tempFile = Files.createTempFile(file.getParent(), "digest", TEMP_SUFFIX);
+      try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+        writer.write(entry.digest + "\t" + entry.version + "\t" + uri);
+        writer.newLine();
+      }
+      try {
+        Files.move(
+            tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Can not write digest of {} to {}", uri, file, e);
+    } finally {
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+          LOGGER.debug("Can not delete {}", tempFile, e);
+        }
+      }
+    }
+  }
+}
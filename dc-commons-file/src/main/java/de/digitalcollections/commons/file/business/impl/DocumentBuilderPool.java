@@ -0,0 +1,64 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Thread-safe pool of namespace aware {@link DocumentBuilder}s with secure processing enabled. The
+ * factory is looked up and configured once; builders are {@link DocumentBuilder#reset() reset} when
+ * they are returned, which also drops the reference to the last parsed document. Unlike a {@code
+ * ThreadLocal}, the pool also reuses builders across virtual threads.
+ */
+public class DocumentBuilderPool {
+
+  private final BlockingQueue<DocumentBuilder> builders;
+  private final DocumentBuilderFactory factory;
+
+  /**
+   * @param maxPooled maximum number of idle builders kept in the pool
+   * @throws ParserConfigurationException if secure processing is not supported
+   */
+  public DocumentBuilderPool(int maxPooled) throws ParserConfigurationException {
+    this.builders = new ArrayBlockingQueue<>(maxPooled);
+    this.factory = DocumentBuilderFactory.newInstance();
+    factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    factory.setNamespaceAware(true);
+  }
+
+  /**
+   * @return an idle builder from the pool or a new one
+   * @throws ParserConfigurationException if no builder can be created
+   */
+  public DocumentBuilder acquire() throws ParserConfigurationException {
+    DocumentBuilder builder = builders.poll();
+    if (builder != null) {
+      return builder;
+    }
+    // DocumentBuilderFactory is not thread-safe
+    synchronized (factory) {
+      return factory.newDocumentBuilder();
+    }
+  }
+
+  /**
+   * Reset a builder and return it to the pool. It must not be used by the caller afterwards.
+   *
+   * @param builder builder acquired from this pool
+   */
+  public void release(DocumentBuilder builder) {
+    if (builder == null) {
+      return;
+    }
+    try {
+      builder.reset();
+    } catch (UnsupportedOperationException e) {
+      // builders that can not be reset are not reused
+      return;
+    }
+    builders.offer(builder);
+  }
+}
@@ -1,38 +1,174 @@
 package de.digitalcollections.commons.file.business.impl;
 
+import de.digitalcollections.commons.file.backend.api.BatchFindResult;
 import de.digitalcollections.commons.file.backend.api.FileResourceRepository;
+import de.digitalcollections.commons.file.backend.impl.FileResourceIoConfig;
+import de.digitalcollections.commons.file.backend.impl.FileResourceIoExecutor;
+import de.digitalcollections.commons.file.backend.impl.cache.CacheStatistics;
+import de.digitalcollections.commons.file.backend.impl.cache.EvictionPolicy;
+import de.digitalcollections.commons.file.backend.impl.cache.ExpiringCache;
+import de.digitalcollections.commons.file.backend.impl.cache.SingleFlight;
 import de.digitalcollections.commons.file.business.api.FileResourceService;
 import de.digitalcollections.model.exception.ResourceIOException;
 import de.digitalcollections.model.exception.ResourceNotFoundException;
 import de.digitalcollections.model.file.MimeType;
 import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
-import javax.xml.XMLConstants;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import org.apache.commons.io.IOUtils;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.w3c.dom.Document;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 @Service
-public class FileResourceServiceImpl implements FileResourceService {
+public class FileResourceServiceImpl implements FileResourceService, DisposableBean {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FileResourceServiceImpl.class);
 
+  private static final class ContentKey {
+
+    private final LocalDateTime lastModified;
+    private final URI uri;
+
+    ContentKey(URI uri, LocalDateTime lastModified) {
+      this.uri = uri;
+      this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ContentKey)) {
+        return false;
+      }
+      ContentKey other = (ContentKey) o;
+      return uri.equals(other.uri) && Objects.equals(lastModified, other.lastModified);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(uri, lastModified);
+    }
+  }
+
+  /** Some VMs reserve header words in an array, so stay a bit below Integer.MAX_VALUE. */
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+  private static final int MAX_POOLED_CHUNKS = 64;
+
+  // size classes of the publishing pools, powers of two
+  private static final int MIN_PUBLISHING_CHUNK_SIZE = 4 * 1024;
+  private static final int MAX_PUBLISHING_CHUNK_SIZE = 1024 * 1024;
+  private static final int MAX_POOLED_BYTES_PER_SIZE = 4 * 1024 * 1024;
+
+  private final ByteBufferPool chunkPool = new ByteBufferPool(64 * 1024, 64, false);
+
+  private final ExpiringCache<ContentKey, byte[]> contentCache;
+
+  private final SingleFlight<ContentKey, byte[]> contentLoads = new SingleFlight<>();
+
+  private final long maxCachedResourceSize;
+
+  private final OffHeapContentCache<ContentKey> offHeapContentCache;
+
+  private final SingleFlight<ContentKey, Boolean> offHeapContentLoads = new SingleFlight<>();
+
+  private final DocumentBuilderPool documentBuilderPool;
+
+  private final StreamingXmlParsers streamingXmlParsers;
+
+  // pools of the chunk buffers of publishers by size class, from the smallest to the largest
+  private final ByteBufferPool[] publishingPools = createPublishingPools();
+
+  private final Executor ioExecutor;
+
+  private final FileResourceIoExecutor ownedIoExecutor;
+
   protected FileResourceRepository repository;
 
-  @Autowired
   public FileResourceServiceImpl(FileResourceRepository repository) {
+    this(repository, null);
+  }
+
+  public FileResourceServiceImpl(
+      FileResourceRepository repository, ContentCacheConfig contentCacheConfig) {
+    this(repository, contentCacheConfig, null);
+  }
+
+  /**
+   * @param ioExecutor executor publishing contents, {@code null} for an unbounded executor owned by
+   *     this service
+   */
+  @Autowired
+  public FileResourceServiceImpl(
+      FileResourceRepository repository,
+      ContentCacheConfig contentCacheConfig,
+      FileResourceIoExecutor ioExecutor) {
     this.repository = repository;
+    if (ioExecutor == null) {
+      this.ownedIoExecutor = new FileResourceIoExecutor(new FileResourceIoConfig());
+      this.ioExecutor = ownedIoExecutor;
+    } else {
+      this.ownedIoExecutor = null;
+      this.ioExecutor = ioExecutor;
+    }
+    if (contentCacheConfig != null && contentCacheConfig.isEnabled()) {
+      this.contentCache =
+          new ExpiringCache<>(
+              contentCacheConfig.getTtl(),
+              contentCacheConfig.getMaxEntries(),
+              contentCacheConfig.getMaxSize().toBytes(),
+              content -> content.length,
+              EvictionPolicy.forName(contentCacheConfig.getEvictionPolicy()));
+      this.maxCachedResourceSize = contentCacheConfig.getMaxResourceSize().toBytes();
+    } else {
+      this.contentCache = null;
+      this.maxCachedResourceSize = 0;
+    }
+    if (contentCacheConfig != null
+        && contentCacheConfig.getOffHeap() != null
+        && contentCacheConfig.getOffHeap().isEnabled()) {
+      this.offHeapContentCache = new OffHeapContentCache<>(contentCacheConfig.getOffHeap());
+    } else {
+      this.offHeapContentCache = null;
+    }
+    try {
+      this.documentBuilderPool = new DocumentBuilderPool(64);
+      this.streamingXmlParsers = new StreamingXmlParsers();
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IllegalStateException("XML parser does not support secure processing", e);
+    }
   }
 
   @Override
@@ -51,12 +187,25 @@ public class FileResourceServiceImpl implements FileResourceService {
     return repository.createByMimeType(mimeType);
   }
 
+  @Override
+  public void destroy() {
+    if (ownedIoExecutor != null) {
+      ownedIoExecutor.destroy();
+    }
+  }
+
   @Override
   public FileResource find(String identifier, MimeType mimeType)
       throws ResourceIOException, ResourceNotFoundException {
     return repository.find(identifier, mimeType);
   }
 
+  @Override
+  public BatchFindResult find(Collection<String> identifiers, MimeType mimeType)
+      throws ResourceIOException {
+    return repository.find(identifiers, mimeType);
+  }
+
   @Override
   public FileResource findOrCreate(String identifier, MimeType mimeType)
       throws ResourceIOException {
@@ -68,11 +217,36 @@ public class FileResourceServiceImpl implements FileResourceService {
     }
   }
 
+  @Override
+  public ByteBuffer getAsByteBuffer(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    return repository.getAsByteBuffer(resource);
+  }
+
   @Override
   public byte[] getAsBytes(FileResource resource)
       throws ResourceIOException, ResourceNotFoundException {
-    try {
-      return IOUtils.toByteArray(getInputStream(resource));
+    byte[] cached = getCachedContent(resource);
+    if (cached != null) {
+      // callers may modify the returned array
+      return cached.clone();
+    }
+    if (isCacheable(resource, resource.getSizeInBytes())) {
+      return loadCacheableContent(resource).clone();
+    }
+    try (OffHeapContentCache<ContentKey>.Content content = getOffHeapContent(resource)) {
+      if (content != null) {
+        byte[] bytes = new byte[content.getLength()];
+        content.getBuffer().get(bytes);
+        return bytes;
+      }
+    }
+    try (InputStream is = repository.getInputStream(resource)) {
+      byte[] bytes = readBytes(is, resource.getSizeInBytes());
+      if (isCacheable(resource, bytes.length)) {
+        contentCache.put(toContentKey(resource), bytes.clone());
+      }
+      return bytes;
     } catch (IOException ex) {
       String msg = "Could not read bytes from resource: " + resource;
       LOGGER.error(msg, ex);
@@ -88,11 +262,12 @@ public class FileResourceServiceImpl implements FileResourceService {
       // get InputStream on resource
       try (InputStream is = getInputStream(resource)) {
         // create Document
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-        dbf.setNamespaceAware(true);
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        doc = db.parse(is);
+        DocumentBuilder db = documentBuilderPool.acquire();
+        try {
+          doc = db.parse(is);
+        } finally {
+          documentBuilderPool.release(db);
+        }
       }
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("Got document: " + doc);
@@ -104,20 +279,152 @@ public class FileResourceServiceImpl implements FileResourceService {
     return doc;
   }
 
+  @Override
+  public XMLStreamReader getAsXmlStreamReader(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    InputStream is = getInputStream(resource);
+    try {
+      return streamingXmlParsers.createXmlStreamReader(is, resource.getUri().toString());
+    } catch (XMLStreamException ex) {
+      try {
+        is.close();
+      } catch (IOException e) {
+        ex.addSuppressed(e);
+      }
+      throw new ResourceIOException(
+          "Cannot read document from resolved resource '" + resource.getUri().toString() + "'", ex);
+    }
+  }
+
+  @Override
+  public void parseXml(FileResource resource, ContentHandler contentHandler)
+      throws ResourceIOException, ResourceNotFoundException {
+    try (InputStream is = getInputStream(resource)) {
+      XMLReader reader = streamingXmlParsers.createXmlReader();
+      reader.setContentHandler(contentHandler);
+      InputSource inputSource = new InputSource(is);
+      inputSource.setSystemId(resource.getUri().toString());
+      reader.parse(inputSource);
+    } catch (IOException | ParserConfigurationException | SAXException ex) {
+      throw new ResourceIOException(
+          "Cannot parse document from resolved resource '" + resource.getUri().toString() + "'",
+          ex);
+    }
+  }
+
   @Override
   public String getAsString(FileResource fileResource, Charset charset)
       throws ResourceIOException, ResourceNotFoundException {
-    try (InputStream is = getInputStream(fileResource)) {
-      return IOUtils.toString(is, charset);
+    // decoding the complete byte array at once takes the fast paths of the JDK for common
+    // charsets and needs no intermediate char buffer
+    byte[] cached = getCachedContent(fileResource);
+    if (cached != null) {
+      return new String(cached, charset);
+    }
+    if (isCacheable(fileResource, fileResource.getSizeInBytes())) {
+      return new String(loadCacheableContent(fileResource), charset);
+    }
+    try (OffHeapContentCache<ContentKey>.Content content = getOffHeapContent(fileResource)) {
+      if (content != null) {
+        byte[] bytes = new byte[content.getLength()];
+        content.getBuffer().get(bytes);
+        return new String(bytes, charset);
+      }
+    }
+    try (InputStream is = repository.getInputStream(fileResource)) {
+      byte[] bytes = readBytes(is, fileResource.getSizeInBytes());
+      if (isCacheable(fileResource, bytes.length)) {
+        contentCache.put(toContentKey(fileResource), bytes);
+      }
+      return new String(bytes, charset);
     } catch (IOException e) {
       throw new ResourceIOException(e);
     }
   }
 
+  /**
+   * @return cached content of the resource or {@code null} if it is not cached
+   */
+  private byte[] getCachedContent(FileResource resource) {
+    if (contentCache == null || resource.getUri() == null) {
+      return null;
+    }
+    return contentCache.get(toContentKey(resource));
+  }
+
+  /**
+   * @return counters of the cache of small file contents, all zero if caching is disabled
+   */
+  public CacheStatistics getContentCacheStatistics() {
+    return contentCache == null ? CacheStatistics.EMPTY : contentCache.getStatistics();
+  }
+
+  /**
+   * Look up a resource in the off-heap cache, reading it into the cache if its size is known and it
+   * is not small enough for the heap cache.
+   *
+   * @return lease of the cached content, to be closed by the caller, or {@code null} if the
+   *     resource is not cached off-heap
+   */
+  private OffHeapContentCache<ContentKey>.Content getOffHeapContent(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    long size = resource.getSizeInBytes();
+    if (offHeapContentCache == null || resource.getUri() == null || isCacheable(resource, size)) {
+      return null;
+    }
+    ContentKey key = toContentKey(resource);
+    OffHeapContentCache<ContentKey>.Content content = offHeapContentCache.get(key);
+    if (content != null || size <= 0 || size > offHeapContentCache.getMaxContentLength()) {
+      return content;
+    }
+    // concurrent readers wait for one of them filling the cache, then take their own lease
+    AtomicReference<OffHeapContentCache<ContentKey>.Content> filled = new AtomicReference<>();
+    boolean cached =
+        offHeapContentLoads.execute(
+            key,
+            () -> {
+              try (ReadableByteChannel channel =
+                  repository.getReadableByteChannel(resource, 0, -1)) {
+                filled.set(offHeapContentCache.put(key, channel, size));
+              } catch (IOException e) {
+                if (filled.get() != null) {
+                  filled.get().close();
+                }
+                throw new ResourceIOException("Could not read bytes from resource: " + resource, e);
+              }
+              return filled.get() != null;
+            });
+    if (filled.get() != null) {
+      return filled.get();
+    }
+    return cached ? offHeapContentCache.get(key) : null;
+  }
+
+  /**
+   * @return counters of the off-heap cache of file contents, all zero if caching is disabled
+   */
+  public CacheStatistics getOffHeapContentCacheStatistics() {
+    return offHeapContentCache == null
+        ? CacheStatistics.EMPTY
+        : offHeapContentCache.getStatistics();
+  }
+
   @Override
   public InputStream getInputStream(FileResource fileResource)
       throws ResourceIOException, ResourceNotFoundException {
-    return repository.getInputStream(fileResource);
+    byte[] cached = getCachedContent(fileResource);
+    if (cached != null) {
+      return new ByteArrayInputStream(cached);
+    }
+    if (!isCacheable(fileResource, fileResource.getSizeInBytes())) {
+      OffHeapContentCache<ContentKey>.Content content = getOffHeapContent(fileResource);
+      if (content != null) {
+        return Channels.newInputStream(content.newChannel(0, -1));
+      }
+      return repository.getInputStream(fileResource);
+    }
+    // small enough to be read at once instead of being streamed
+    return new ByteArrayInputStream(loadCacheableContent(fileResource));
   }
 
   @Override
@@ -126,9 +433,251 @@ public class FileResourceServiceImpl implements FileResourceService {
     return repository.getInputStream(resourceUri);
   }
 
+  @Override
+  public InputStream getInputStream(FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    // empty ranges are answered by the repository without reading
+    if (offset >= 0 && length >= -1 && length != 0) {
+      OffHeapContentCache<ContentKey>.Content content = getOffHeapContent(resource);
+      if (content != null) {
+        return Channels.newInputStream(content.newChannel(offset, length));
+      }
+    }
+    return repository.getInputStream(resource, offset, length);
+  }
+
+  @Override
+  public ReadableByteChannel getReadableByteChannel(FileResource resource, long offset, long length)
+      throws ResourceIOException, ResourceNotFoundException {
+    // empty ranges are answered by the repository without reading
+    if (offset >= 0 && length >= -1 && length != 0) {
+      OffHeapContentCache<ContentKey>.Content content = getOffHeapContent(resource);
+      if (content != null) {
+        return content.newChannel(offset, length);
+      }
+    }
+    return repository.getReadableByteChannel(resource, offset, length);
+  }
+
   @Override
   public Reader getReader(FileResource resource)
       throws ResourceIOException, ResourceNotFoundException {
     return repository.getReader(resource);
   }
+
+  @Override
+  public Flow.Publisher<ByteBuffer> publish(FileResource resource, int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive, but was " + chunkSize);
+    }
+    int cappedChunkSize = Math.min(chunkSize, MAX_PUBLISHING_CHUNK_SIZE);
+    ByteBufferPool pool = getPublishingPool(cappedChunkSize);
+    return new ByteBufferPublisher(
+        () -> getReadableByteChannel(resource, 0, -1), pool, cappedChunkSize, ioExecutor);
+  }
+
+  private static ByteBufferPool[] createPublishingPools() {
+    List<ByteBufferPool> pools = new ArrayList<>();
+    for (int size = MIN_PUBLISHING_CHUNK_SIZE; size <= MAX_PUBLISHING_CHUNK_SIZE; size *= 2) {
+      int maxPooled = Math.min(MAX_POOLED_CHUNKS, MAX_POOLED_BYTES_PER_SIZE / size);
+      pools.add(new ByteBufferPool(size, maxPooled, true));
+    }
+    return pools.toArray(new ByteBufferPool[0]);
+  }
+
+  /**
+   * @return pool of the smallest size class holding chunks of the given size
+   */
+  private ByteBufferPool getPublishingPool(int chunkSize) {
+    for (ByteBufferPool pool : publishingPools) {
+      if (pool.getBufferSize() >= chunkSize) {
+        return pool;
+      }
+    }
+    return publishingPools[publishingPools.length - 1];
+  }
+
+  @Override
+  public CompletableFuture<ByteBuffer> readAsync(FileResource resource) {
+    byte[] cached = getCachedContent(resource);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(ByteBuffer.wrap(cached).asReadOnlyBuffer());
+    }
+    return repository.readAsync(resource);
+  }
+
+  /**
+   * Read a resource small enough for the heap cache into the cache. Concurrent reads of the same
+   * content (e.g. of a popular manifest) share one read of the file.
+   *
+   * @return content, shared with the cache and other callers and thus not to be modified
+   */
+  private byte[] loadCacheableContent(FileResource resource)
+      throws ResourceIOException, ResourceNotFoundException {
+    ContentKey key = toContentKey(resource);
+    return contentLoads.execute(
+        key,
+        () -> {
+          try (InputStream is = repository.getInputStream(resource)) {
+            byte[] bytes = readBytes(is, resource.getSizeInBytes());
+            if (isCacheable(resource, bytes.length)) {
+              contentCache.put(key, bytes);
+            }
+            return bytes;
+          } catch (IOException e) {
+            throw new ResourceIOException("Could not read bytes from resource: " + resource, e);
+          }
+        });
+  }
+
+  private boolean isCacheable(FileResource resource, long size) {
+    return contentCache != null
+        && resource.getUri() != null
+        && size > 0
+        && size <= maxCachedResourceSize;
+  }
+
+  /**
+   * Read all bytes of a stream. If the expected size is known, the data is read into an array of
+   * exactly that size. Otherwise it is collected in pooled chunks and copied once into an array of
+   * the final size.
+   *
+   * @param is stream to read
+   * @param expectedSize expected number of bytes, 0 or negative if unknown
+   * @return all bytes of the stream
+   * @throws IOException if reading fails
+   */
+  protected byte[] readBytes(InputStream is, long expectedSize) throws IOException {
+    if (expectedSize > 0 && expectedSize < MAX_ARRAY_SIZE) {
+      byte[] bytes = new byte[(int) expectedSize];
+      int read = is.readNBytes(bytes, 0, bytes.length);
+      if (read < bytes.length) {
+        // file has been truncated meanwhile
+        return Arrays.copyOf(bytes, read);
+      }
+      int next = is.read();
+      if (next < 0) {
+        return bytes;
+      }
+      // file has grown meanwhile, collect the rest in chunks
+      List<ByteBuffer> chunks = readChunks(is);
+      try {
+        byte[] result = new byte[bytes.length + 1 + size(chunks)];
+        System.arraycopy(bytes, 0, result, 0, bytes.length);
+        result[bytes.length] = (byte) next;
+        copyChunks(chunks, result, bytes.length + 1);
+        return result;
+      } finally {
+        chunks.forEach(chunkPool::release);
+      }
+    }
+    List<ByteBuffer> chunks = readChunks(is);
+    try {
+      byte[] result = new byte[size(chunks)];
+      copyChunks(chunks, result, 0);
+      return result;
+    } finally {
+      chunks.forEach(chunkPool::release);
+    }
+  }
+
+  private List<ByteBuffer> readChunks(InputStream is) throws IOException {
+    List<ByteBuffer> chunks = new ArrayList<>();
+    try {
+      while (true) {
+        ByteBuffer chunk = chunkPool.acquire();
+        chunks.add(chunk);
+        int read = is.readNBytes(chunk.array(), 0, chunk.capacity());
+        chunk.position(read);
+        if (read < chunk.capacity()) {
+          return chunks;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      chunks.forEach(chunkPool::release);
+      throw e;
+    }
+  }
+
+  private static void copyChunks(List<ByteBuffer> chunks, byte[] target, int offset) {
+    for (ByteBuffer chunk : chunks) {
+      System.arraycopy(chunk.array(), 0, target, offset, chunk.position());
+      offset += chunk.position();
+    }
+  }
+
+  private static ContentKey toContentKey(FileResource resource) {
+    return new ContentKey(resource.getUri(), resource.getLastModified());
+  }
+
+  private static int size(List<ByteBuffer> chunks) throws IOException {
+    long size = 0;
+    for (ByteBuffer chunk : chunks) {
+      size += chunk.position();
+    }
+    if (size >= MAX_ARRAY_SIZE) {
+      throw new IOException("Resource is too large for a byte array: " + size + " bytes");
+    }
+    return (int) size;
+  }
+
+  @Override
+  public void invalidate(String identifier) {
+    repository.invalidate(identifier);
+  }
+
+  @Override
+  public long transferTo(
+      FileResource resource, long offset, long length, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    // empty ranges are answered by the repository without reading
+    if (offset >= 0 && length >= -1 && length != 0) {
+      try (OffHeapContentCache<ContentKey>.Content content = getOffHeapContent(resource)) {
+        if (content != null) {
+          return write(content, offset, length, target);
+        }
+      }
+    }
+    return repository.transferTo(resource, offset, length, target);
+  }
+
+  @Override
+  public long transferTo(FileResource resource, WritableByteChannel target)
+      throws ResourceIOException, ResourceNotFoundException {
+    try (OffHeapContentCache<ContentKey>.Content content = getOffHeapContent(resource)) {
+      if (content != null) {
+        return write(content, 0, -1, target);
+      }
+    }
+    return repository.transferTo(resource, target);
+  }
+
+  /** Write a cached content directly from off-heap memory to a channel. */
+  private static long write(
+      OffHeapContentCache<ContentKey>.Content content,
+      long offset,
+      long length,
+      WritableByteChannel target)
+      throws ResourceIOException {
+    ByteBuffer buffer = content.getBuffer();
+    buffer.position((int) Math.min(offset, buffer.limit()));
+    if (length >= 0 && length < buffer.remaining()) {
+      buffer.limit(buffer.position() + (int) length);
+    }
+    long written = buffer.remaining();
+    try {
+      while (buffer.hasRemaining()) {
+        target.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new ResourceIOException("Could not write cached content", e);
+    }
+    return written;
+  }
+
+  @Override
+  public long transferTo(FileResource resource, OutputStream target)
+      throws ResourceIOException, ResourceNotFoundException {
+    return repository.transferTo(resource, target);
+  }
 }
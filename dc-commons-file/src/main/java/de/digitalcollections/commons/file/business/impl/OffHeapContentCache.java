@@ -0,0 +1,356 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import de.digitalcollections.commons.file.backend.impl.cache.CacheStatistics;
+import de.digitalcollections.commons.file.backend.impl.cache.EvictionPolicy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache of file contents stored outside of the Java heap, so that gigabytes of cached contents do
+ * not prolong garbage collection pauses. The memory consists of direct buffers ("slabs") allocated
+ * as needed up to the maximum size. Contents are placed in blocks of a buddy allocator: block sizes
+ * are powers of two of the minimum block size, freed blocks are merged with their free neighbours.
+ * If no block is free, entries are evicted according to the {@link EvictionPolicy} until the
+ * content fits.
+ *
+ * <p>Cached contents are read as read-only slices of the slabs without copying. A slice is only
+ * valid while its {@link Content} is open, the memory of an evicted entry is reused after all of
+ * its contents have been closed.
+ *
+ * @param <K> type of the keys
+ */
+public class OffHeapContentCache<K> {
+
+  /** Lease of a cached content, keeps its memory from being reused until closed. */
+  public final class Content implements Closeable {
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Entry entry;
+
+    private Content(Entry entry) {
+      this.entry = entry;
+    }
+
+    /**
+     * @return read-only buffer of the content, positioned at 0, valid until this lease is closed
+     */
+    public ByteBuffer getBuffer() {
+      return slice(entry.address, entry.length).asReadOnlyBuffer();
+    }
+
+    public int getLength() {
+      return entry.length;
+    }
+
+    /**
+     * @param offset position of the first byte to read
+     * @param length maximum number of bytes to read, -1 for reading up to the end
+     * @return channel reading the content, closing this lease when closed
+     */
+    public ReadableByteChannel newChannel(long offset, long length) {
+      ByteBuffer buffer = getBuffer();
+      buffer.position((int) Math.min(offset, buffer.limit()));
+      if (length >= 0 && length < buffer.remaining()) {
+        buffer.limit(buffer.position() + (int) length);
+      }
+      return new ReadableByteChannel() {
+        @Override
+        public void close() {
+          Content.this.close();
+        }
+
+        @Override
+        public boolean isOpen() {
+          return !closed.get();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+          if (closed.get()) {
+            throw new ClosedChannelException();
+          }
+          if (!buffer.hasRemaining()) {
+            return -1;
+          }
+          int count = Math.min(dst.remaining(), buffer.remaining());
+          ByteBuffer chunk = buffer.slice();
+          chunk.limit(count);
+          dst.put(chunk);
+          buffer.position(buffer.position() + count);
+          return count;
+        }
+      };
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(entry);
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final long address;
+    private boolean evicted;
+    private final long expiresAt;
+    private final int length;
+    private int leases;
+    private final int order;
+
+    Entry(long address, int order, int length, long expiresAt) {
+      this.address = address;
+      this.order = order;
+      this.length = length;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private final Map<K, Entry> entries = new HashMap<>();
+  private final EvictionPolicy<K> evictionPolicy;
+  // free blocks by order, addresses are slab index * slab size + offset
+  private final List<LinkedHashSet<Long>> freeBlocks = new ArrayList<>();
+  private final int maxContentLength;
+  private final int maxEntries;
+  private final int maxOrder;
+  private final int maxSlabs;
+  private final int minBlockShift;
+  private final int slabSize;
+  // appended under the lock, read by slices without it
+  private final List<ByteBuffer> slabs = new CopyOnWriteArrayList<>();
+  private final long ttlNanos;
+
+  private long evictionCount;
+  private long expirationCount;
+  private long hitCount;
+  private long missCount;
+
+  public OffHeapContentCache(OffHeapContentCacheConfig config) {
+    long minBlockSize = config.getMinBlockSize().toBytes();
+    long slabSize = config.getSlabSize().toBytes();
+    if (Long.bitCount(minBlockSize) != 1
+        || Long.bitCount(slabSize) != 1
+        || slabSize < minBlockSize
+        || slabSize > 1L << 30) {
+      throw new IllegalArgumentException(
+          "Block and slab size must be powers of two up to 1GB, but were "
+              + minBlockSize
+              + " and "
+              + slabSize);
+    }
+    this.slabSize = (int) slabSize;
+    this.minBlockShift = Long.numberOfTrailingZeros(minBlockSize);
+    this.maxOrder = Long.numberOfTrailingZeros(slabSize) - minBlockShift;
+    this.maxSlabs = (int) Math.max(1, config.getMaxSize().toBytes() / slabSize);
+    this.maxContentLength = (int) Math.min(config.getMaxResourceSize().toBytes(), slabSize);
+    this.maxEntries = config.getMaxEntries();
+    this.ttlNanos = config.getTtl() == null ? 0 : config.getTtl().toNanos();
+    this.evictionPolicy = EvictionPolicy.forName(config.getEvictionPolicy());
+    for (int order = 0; order <= maxOrder; order++) {
+      freeBlocks.add(new LinkedHashSet<>());
+    }
+  }
+
+  /**
+   * @return address of a free block of the order or -1 if there is none
+   */
+  private long allocate(int order) {
+    int freeOrder = order;
+    while (freeOrder <= maxOrder && freeBlocks.get(freeOrder).isEmpty()) {
+      freeOrder++;
+    }
+    if (freeOrder > maxOrder) {
+      if (slabs.size() >= maxSlabs) {
+        return -1;
+      }
+      slabs.add(ByteBuffer.allocateDirect(slabSize));
+      freeOrder = maxOrder;
+      freeBlocks.get(maxOrder).add((long) (slabs.size() - 1) * slabSize);
+    }
+    LinkedHashSet<Long> blocks = freeBlocks.get(freeOrder);
+    long address = blocks.iterator().next();
+    blocks.remove(address);
+    // split, keeping the lower half and freeing the upper one
+    while (freeOrder > order) {
+      freeOrder--;
+      freeBlocks.get(freeOrder).add(address + getBlockSize(freeOrder));
+    }
+    return address;
+  }
+
+  /**
+   * @return number of bytes of the allocated slabs
+   */
+  public synchronized long getAllocatedSize() {
+    return (long) slabs.size() * slabSize;
+  }
+
+  private long getBlockSize(int order) {
+    return 1L << (order + minBlockShift);
+  }
+
+  /**
+   * @param key key of the entry
+   * @return lease of the cached content or {@code null} if there is no (unexpired) entry, has to be
+   *     closed after reading
+   */
+  public synchronized Content get(K key) {
+    Entry entry = entries.get(key);
+    if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.expiresAt >= 0) {
+      remove(key);
+      expirationCount++;
+      entry = null;
+    }
+    if (entry == null) {
+      missCount++;
+      return null;
+    }
+    evictionPolicy.onAccess(key);
+    hitCount++;
+    entry.leases++;
+    return new Content(entry);
+  }
+
+  public int getMaxContentLength() {
+    return maxContentLength;
+  }
+
+  private int getOrder(int length) {
+    long blocks = ((long) Math.max(length, 1) + getBlockSize(0) - 1) >> minBlockShift;
+    return 64 - Long.numberOfLeadingZeros(blocks - 1);
+  }
+
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(hitCount, missCount, evictionCount, expirationCount, entries.size());
+  }
+
+  private void free(long address, int order) {
+    while (order < maxOrder) {
+      long buddy = address ^ getBlockSize(order);
+      if (!freeBlocks.get(order).remove(buddy)) {
+        break;
+      }
+      address = Math.min(address, buddy);
+      order++;
+    }
+    freeBlocks.get(order).add(address);
+  }
+
+  /**
+   * @param key key of the entry
+   * @return {@code true} if an entry has been removed
+   */
+  public synchronized boolean invalidate(K key) {
+    return remove(key);
+  }
+
+  /**
+   * Read a content into the cache. The memory is reserved first (evicting entries if needed), then
+   * filled from the source without holding the lock of the cache.
+   *
+   * @param key key of the entry
+   * @param source channel to read the content from, not closed
+   * @param length length of the content
+   * @return lease of the cached content, has to be closed after reading, or {@code null} if it is
+   *     too large, no memory could be reserved or the source ended early
+   * @throws IOException if reading the source fails
+   */
+  public Content put(K key, ReadableByteChannel source, long length) throws IOException {
+    if (length <= 0 || length > maxContentLength) {
+      return null;
+    }
+    int order = getOrder((int) length);
+    long address = reserve(order);
+    if (address < 0) {
+      return null;
+    }
+    boolean filled = false;
+    Entry entry = null;
+    try {
+      ByteBuffer target = slice(address, (int) length);
+      while (target.hasRemaining() && source.read(target) >= 0) {
+        // read until the content is complete or the source has been truncated meanwhile
+      }
+      filled = !target.hasRemaining();
+    } finally {
+      synchronized (this) {
+        if (filled) {
+          remove(key);
+          entry = new Entry(address, order, (int) length, System.nanoTime() + ttlNanos);
+          entry.leases++;
+          entries.put(key, entry);
+          evictionPolicy.onInsert(key);
+        } else {
+          free(address, order);
+        }
+      }
+    }
+    return entry == null ? null : new Content(entry);
+  }
+
+  private void release(Entry entry) {
+    synchronized (this) {
+      entry.leases--;
+      if (entry.evicted && entry.leases == 0) {
+        free(entry.address, entry.order);
+      }
+    }
+  }
+
+  private boolean remove(K key) {
+    Entry entry = entries.remove(key);
+    if (entry == null) {
+      return false;
+    }
+    evictionPolicy.onRemove(key);
+    entry.evicted = true;
+    if (entry.leases == 0) {
+      free(entry.address, entry.order);
+    }
+    return true;
+  }
+
+  /**
+   * @return address of a block of the order, -1 if even evicting all entries did not free one
+   */
+  private synchronized long reserve(int order) {
+    while (entries.size() >= maxEntries) {
+      K victim = evictionPolicy.selectVictim();
+      if (victim == null) {
+        break;
+      }
+      remove(victim);
+      evictionCount++;
+    }
+    long address = allocate(order);
+    while (address < 0) {
+      K victim = evictionPolicy.selectVictim();
+      if (victim == null) {
+        return -1;
+      }
+      remove(victim);
+      evictionCount++;
+      address = allocate(order);
+    }
+    return address;
+  }
+
+  private ByteBuffer slice(long address, int length) {
+    ByteBuffer slab = slabs.get((int) (address / slabSize));
+    int offset = (int) (address % slabSize);
+    ByteBuffer slice = slab.duplicate();
+    slice.position(offset).limit(offset + length);
+    return slice.slice();
+  }
+}
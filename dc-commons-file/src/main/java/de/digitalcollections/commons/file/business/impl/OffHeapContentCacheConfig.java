@@ -0,0 +1,82 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import de.digitalcollections.commons.file.backend.impl.ResolutionCacheConfig;
+import java.time.Duration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration of the off-heap cache of file contents used by {@link FileResourceServiceImpl},
+ * bound to {@code resource-repository.content-cache.off-heap}. Caching is disabled by default.
+ *
+ * <p>The memory is allocated as direct buffers of {@code slab-size} as needed, up to {@code
+ * max-size}. The JVM limits direct memory by {@code -XX:MaxDirectMemorySize} (by default the
+ * maximum heap size), which has to be raised accordingly. Resources small enough for the heap
+ * content cache are kept there instead.
+ *
+ * <p>Example configuration (via a Spring Boot {@code application.yml}):
+ *
+ * <pre>
+ * resourceRepository:
+ *   content-cache:
+ *     off-heap:
+ *       enabled: true
+ *       max-size: 8GB
+ *       max-resource-size: 32MB
+ *       eviction-policy: lfu
+ * </pre>
+ */
+public class OffHeapContentCacheConfig extends ResolutionCacheConfig {
+
+  private DataSize maxResourceSize = DataSize.ofMegabytes(16);
+  private DataSize maxSize = DataSize.ofGigabytes(1);
+  private DataSize minBlockSize = DataSize.ofKilobytes(4);
+  private DataSize slabSize = DataSize.ofMegabytes(64);
+
+  public OffHeapContentCacheConfig() {
+    super(false, Duration.ofHours(1), 100000);
+  }
+
+  /**
+   * @return maximum size of a single resource to be cached, at most the slab size
+   */
+  public DataSize getMaxResourceSize() {
+    return maxResourceSize;
+  }
+
+  /**
+   * @return maximum total size of the allocated slabs
+   */
+  public DataSize getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return size of the smallest block allocated for a resource, blocks are powers of two of it
+   */
+  public DataSize getMinBlockSize() {
+    return minBlockSize;
+  }
+
+  /**
+   * @return size of a single direct buffer, a power of two of the minimum block size
+   */
+  public DataSize getSlabSize() {
+    return slabSize;
+  }
+
+  public void setMaxResourceSize(DataSize maxResourceSize) {
+    this.maxResourceSize = maxResourceSize;
+  }
+
+  public void setMaxSize(DataSize maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public void setMinBlockSize(DataSize minBlockSize) {
+    this.minBlockSize = minBlockSize;
+  }
+
+  public void setSlabSize(DataSize slabSize) {
+    this.slabSize = slabSize;
+  }
+}
@@ -0,0 +1,85 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Factories for streaming (StAX and SAX) XML parsers, hardened like the builders of {@link
+ * DocumentBuilderPool}: namespace aware, secure processing and no access to external DTDs or
+ * entities. The factories are looked up and configured once.
+ */
+public class StreamingXmlParsers {
+
+  private final XMLInputFactory inputFactory;
+  private final SAXParserFactory saxParserFactory;
+
+  /**
+   * @throws ParserConfigurationException if secure processing is not supported
+   * @throws SAXException if secure processing is not supported
+   */
+  public StreamingXmlParsers() throws ParserConfigurationException, SAXException {
+    saxParserFactory = SAXParserFactory.newInstance();
+    saxParserFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    saxParserFactory.setNamespaceAware(true);
+
+    inputFactory = XMLInputFactory.newFactory();
+    inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    try {
+      // what secure processing implies for DocumentBuilders of the JDK
+      inputFactory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    } catch (IllegalArgumentException e) {
+      // not supported by this StAX implementation, external entities are disabled anyway
+    }
+  }
+
+  /**
+   * @return a new namespace aware SAX reader with secure processing
+   * @throws ParserConfigurationException if no parser can be created
+   * @throws SAXException if no parser can be created
+   */
+  public XMLReader createXmlReader() throws ParserConfigurationException, SAXException {
+    // SAXParserFactory is not thread-safe
+    synchronized (saxParserFactory) {
+      return saxParserFactory.newSAXParser().getXMLReader();
+    }
+  }
+
+  /**
+   * @param is XML data, closed with the returned reader
+   * @param systemId system id of the XML data (e.g. its URI), may be null
+   * @return a StAX reader closing the input stream on {@link XMLStreamReader#close()}
+   * @throws XMLStreamException if the reader can not be created
+   */
+  public XMLStreamReader createXmlStreamReader(InputStream is, String systemId)
+      throws XMLStreamException {
+    XMLStreamReader reader;
+    // XMLInputFactory is not guaranteed to be thread-safe
+    synchronized (inputFactory) {
+      reader = inputFactory.createXMLStreamReader(systemId, is);
+    }
+    return new StreamReaderDelegate(reader) {
+      @Override
+      public void close() throws XMLStreamException {
+        try {
+          super.close();
+        } finally {
+          try {
+            is.close();
+          } catch (IOException e) {
+            throw new XMLStreamException("Cannot close input stream of " + systemId, e);
+          }
+        }
+      }
+    };
+  }
+}
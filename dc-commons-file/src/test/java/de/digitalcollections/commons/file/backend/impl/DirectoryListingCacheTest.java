@@ -0,0 +1,83 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DirectoryListingCacheTest {
+
+  private static DirectoryListingCacheConfig createConfig(boolean watch) {
+    DirectoryListingCacheConfig config = new DirectoryListingCacheConfig();
+    config.setEnabled(true);
+    config.setWatch(watch);
+    return config;
+  }
+
+  @Test
+  public void listingsAreCachedUntilInvalidated(@TempDir Path tempDir) throws Exception {
+    Path first = Files.createFile(tempDir.resolve("first.txt"));
+    Files.createDirectory(tempDir.resolve("subdirectory"));
+    DirectoryListingCache directoryListingCache = new DirectoryListingCache(createConfig(false));
+
+    assertThat(directoryListingCache.getEntries(tempDir)).hasSize(2);
+    assertThat(directoryListingCache.getRegularFiles(tempDir)).containsExactly(first);
+
+    Path second = Files.createFile(tempDir.resolve("second.txt"));
+    assertThat(directoryListingCache.getRegularFiles(tempDir)).containsExactly(first);
+
+    directoryListingCache.invalidate(tempDir);
+    assertThat(directoryListingCache.getRegularFiles(tempDir))
+        .containsExactlyInAnyOrder(first, second);
+    assertThat(directoryListingCache.getStatistics().getHitCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void listingsAreInvalidatedByWatchEvents(@TempDir Path tempDir) throws Exception {
+    DirectoryListingCache directoryListingCache = new DirectoryListingCache(createConfig(true));
+    try {
+      assertThat(directoryListingCache.getEntries(tempDir)).isEmpty();
+
+      Path created = Files.createFile(tempDir.resolve("created.txt"));
+      long timeout = System.currentTimeMillis() + 30_000;
+      while (directoryListingCache.getEntries(tempDir).isEmpty()
+          && System.currentTimeMillis() < timeout) {
+        Thread.sleep(50);
+      }
+      assertThat(directoryListingCache.getEntries(tempDir)).containsExactly(created);
+    } finally {
+      directoryListingCache.destroy();
+    }
+  }
+
+  @Test
+  public void listingsAreBoundedByTheirEntries(@TempDir Path tempDir) throws Exception {
+    Path small = Files.createDirectory(tempDir.resolve("small"));
+    Path large = Files.createDirectory(tempDir.resolve("large"));
+    Files.createFile(small.resolve("1.txt"));
+    for (int i = 0; i < 3; i++) {
+      Files.createFile(large.resolve(i + ".txt"));
+    }
+    DirectoryListingCacheConfig config = createConfig(false);
+    config.setMaxListedEntries(2);
+    DirectoryListingCache directoryListingCache = new DirectoryListingCache(config);
+
+    assertThat(directoryListingCache.getEntries(small)).hasSize(1);
+    assertThat(directoryListingCache.getEntries(small)).hasSize(1);
+    // too large to be cached at all
+    assertThat(directoryListingCache.getEntries(large)).hasSize(3);
+    assertThat(directoryListingCache.getEntries(large)).hasSize(3);
+    assertThat(directoryListingCache.getStatistics().getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void listsDirectlyIfDisabled(@TempDir Path tempDir) throws Exception {
+    DirectoryListingCache directoryListingCache =
+        new DirectoryListingCache(new DirectoryListingCacheConfig());
+    assertThat(directoryListingCache.getEntries(tempDir)).isEmpty();
+    Path created = Files.createFile(tempDir.resolve("created.txt"));
+    assertThat(directoryListingCache.getEntries(tempDir)).containsExactly(created);
+  }
+}
@@ -0,0 +1,248 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.unit.DataSize;
+
+public class DiskCachingFileResourceRepositoryTest {
+
+  // content by path, the ETag is the content itself
+  private final Map<String, String> contents = new ConcurrentHashMap<>();
+  private final AtomicInteger downloads = new AtomicInteger();
+  private final AtomicInteger requests = new AtomicInteger();
+  private HttpServer server;
+
+  @BeforeEach
+  public void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          requests.incrementAndGet();
+          String content = contents.get(exchange.getRequestURI().getPath());
+          if (content == null) {
+            exchange.sendResponseHeaders(404, -1);
+          } else if (('"' + content + '"')
+              .equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+          } else {
+            downloads.incrementAndGet();
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", '"' + content + '"');
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+          }
+          exchange.close();
+        });
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private DiskCachingFileResourceRepository createRepository(
+      Path directory, Duration revalidateAfter, DataSize maxSize) {
+    HttpDiskCacheConfig config = new HttpDiskCacheConfig();
+    config.setDirectory(directory.toString());
+    config.setRevalidateAfter(revalidateAfter);
+    config.setMaxSize(maxSize);
+    FileResourceRepositoryImpl repository =
+        new FileResourceRepositoryImpl(
+            new IdentifierPatternToFileResourceUriResolvingConfig(),
+            Collections.emptyList(),
+            new DefaultResourceLoader());
+    return new DiskCachingFileResourceRepository(
+        repository, new HttpFileResourceClient(new FileResourceHttpConfig()), config);
+  }
+
+  private String read(DiskCachingFileResourceRepository repository, String path) throws Exception {
+    FileResource resource = new FileResource();
+    resource.setUri(URI.create("http://localhost:" + server.getAddress().getPort() + path));
+    try (InputStream is = repository.getInputStream(resource)) {
+      return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private String readAsync(DiskCachingFileResourceRepository repository, String path)
+      throws Exception {
+    FileResource resource = new FileResource();
+    resource.setUri(URI.create("http://localhost:" + server.getAddress().getPort() + path));
+    ByteBuffer buffer = repository.readAsync(resource).get(10, TimeUnit.SECONDS);
+    return StandardCharsets.UTF_8.decode(buffer).toString();
+  }
+
+  @Test
+  public void copiesAreRevalidated(@TempDir Path tempDir) throws Exception {
+    contents.put("/manifest.json", "first");
+    DiskCachingFileResourceRepository repository =
+        createRepository(tempDir, Duration.ZERO, DataSize.ofKilobytes(1));
+
+    assertThat(read(repository, "/manifest.json")).isEqualTo("first");
+    assertThat(read(repository, "/manifest.json")).isEqualTo("first");
+    assertThat(requests.get()).isEqualTo(2);
+    assertThat(downloads.get()).isEqualTo(1);
+
+    contents.put("/manifest.json", "second");
+    assertThat(readAsync(repository, "/manifest.json")).isEqualTo("second");
+    assertThat(downloads.get()).isEqualTo(2);
+    assertThat(repository.getStatistics().getHitCount()).isEqualTo(1);
+    assertThat(repository.getStatistics().getMissCount()).isEqualTo(1);
+    assertThat(repository.getStatistics().getExpirationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void copiesAreServedFromDiskUntilRevalidation(@TempDir Path tempDir) throws Exception {
+    contents.put("/ocr.xml", "<alto/>");
+    DiskCachingFileResourceRepository repository =
+        createRepository(tempDir, Duration.ofHours(1), DataSize.ofKilobytes(1));
+
+    assertThat(read(repository, "/ocr.xml")).isEqualTo("<alto/>");
+    contents.put("/ocr.xml", "<alto>changed</alto>");
+    assertThat(read(repository, "/ocr.xml")).isEqualTo("<alto/>");
+    assertThat(readAsync(repository, "/ocr.xml")).isEqualTo("<alto/>");
+    assertThat(requests.get()).isEqualTo(1);
+
+    // a new instance revalidates the copies of the former one
+    contents.put("/ocr.xml", "<alto/>");
+    repository = createRepository(tempDir, Duration.ofHours(1), DataSize.ofKilobytes(1));
+    assertThat(repository.getStatistics().getSize()).isEqualTo(1);
+    assertThat(read(repository, "/ocr.xml")).isEqualTo("<alto/>");
+    assertThat(requests.get()).isEqualTo(2);
+    assertThat(downloads.get()).isEqualTo(1);
+
+    // the copy is served if the server is not reachable
+    repository = createRepository(tempDir, Duration.ZERO, DataSize.ofKilobytes(1));
+    server.stop(0);
+    assertThat(read(repository, "/ocr.xml")).isEqualTo("<alto/>");
+  }
+
+  @Test
+  public void leastRecentlyUsedCopiesAreEvicted(@TempDir Path tempDir) throws Exception {
+    contents.put("/a.txt", "aaaaaaaaaa");
+    contents.put("/b.txt", "bbbbbbbbbb");
+    contents.put("/c.txt", "cccccccccc");
+    contents.put("/large.txt", "0123456789012345678901234567890");
+    DiskCachingFileResourceRepository repository =
+        createRepository(tempDir, Duration.ofHours(1), DataSize.ofBytes(25));
+
+    read(repository, "/a.txt");
+    read(repository, "/b.txt");
+    read(repository, "/a.txt");
+    read(repository, "/c.txt");
+    assertThat(repository.getTotalSize()).isEqualTo(20);
+    assertThat(repository.getStatistics().getEvictionCount()).isEqualTo(1);
+
+    // b has been evicted, a and c are still cached
+    int before = requests.get();
+    read(repository, "/a.txt");
+    read(repository, "/c.txt");
+    assertThat(requests.get()).isEqualTo(before);
+    read(repository, "/b.txt");
+    assertThat(requests.get()).isEqualTo(before + 1);
+
+    // too large resources are read from the server
+    assertThat(read(repository, "/large.txt")).isEqualTo(contents.get("/large.txt"));
+    assertThat(repository.getTotalSize()).isLessThanOrEqualTo(25);
+    assertThat(tempDir.toFile().list()).hasSize(4);
+  }
+
+  @Test
+  public void tooLargeResourcesAreReadFromTheServerOnce(@TempDir Path tempDir) throws Exception {
+    contents.put("/large.txt", "x".repeat(2048));
+    DiskCachingFileResourceRepository repository =
+        createRepository(tempDir, Duration.ofHours(1), DataSize.ofKilobytes(1));
+
+    // the conditional request is aborted, then the resource is read from the server
+    assertThat(read(repository, "/large.txt")).hasSize(2048);
+    assertThat(requests.get()).isEqualTo(2);
+    // remembered as too large, so read directly until revalidation is due
+    assertThat(read(repository, "/large.txt")).hasSize(2048);
+    assertThat(read(repository, "/large.txt")).hasSize(2048);
+    assertThat(requests.get()).isEqualTo(4);
+    assertThat(repository.getStatistics().getSize()).isZero();
+  }
+
+  @Test
+  public void copiesInUseAreNotDeleted(@TempDir Path tempDir) throws Exception {
+    List<String> paths = new ArrayList<>();
+    for (char c = 'a'; c <= 'h'; c++) {
+      String path = "/" + c + ".txt";
+      contents.put(path, String.valueOf(c).repeat(10));
+      paths.add(path);
+    }
+    // room for two copies only, so that concurrent downloads evict each other's copies
+    DiskCachingFileResourceRepository repository =
+        createRepository(tempDir, Duration.ofHours(1), DataSize.ofBytes(25));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 400; i++) {
+        String path = paths.get(i % paths.size());
+        futures.add(
+            executor.submit(
+                () -> {
+                  assertThat(read(repository, path)).isEqualTo(contents.get(path));
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(repository.getStatistics().getEvictionCount()).isPositive();
+    assertThat(repository.getTotalSize()).isLessThanOrEqualTo(25);
+  }
+
+  @Test
+  public void deletedCopiesAreReadFromTheServer(@TempDir Path tempDir) throws Exception {
+    contents.put("/manifest.json", "first");
+    DiskCachingFileResourceRepository repository =
+        createRepository(tempDir, Duration.ofHours(1), DataSize.ofKilobytes(1));
+    assertThat(read(repository, "/manifest.json")).isEqualTo("first");
+
+    // e.g. by a cron job cleaning up the directory
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(tempDir, "*.data")) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+    assertThat(read(repository, "/manifest.json")).isEqualTo("first");
+    assertThat(downloads.get()).isEqualTo(2);
+
+    // the entry has been dropped, the next read stores a new copy
+    assertThat(readAsync(repository, "/manifest.json")).isEqualTo("first");
+    assertThat(downloads.get()).isEqualTo(3);
+    assertThat(read(repository, "/manifest.json")).isEqualTo("first");
+    assertThat(downloads.get()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,68 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class FileResourceIoExecutorTest {
+
+  @Test
+  public void backendsAreSchemesOrConfiguredPrefixes() {
+    FileResourceIoConfig config = new FileResourceIoConfig();
+    config.getMaxConcurrency().put("file", 8);
+    config.getMaxConcurrency().put("file:/mnt/nfs/", 2);
+    config.getMaxConcurrency().put("file:/mnt/nfs/slow/", 1);
+    FileResourceIoExecutor ioExecutor = new FileResourceIoExecutor(config);
+
+    assertThat(ioExecutor.getBackend(URI.create("file:/var/images/1.jpg"))).isEqualTo("file");
+    assertThat(ioExecutor.getBackend(URI.create("file:/mnt/nfs/1.jpg")))
+        .isEqualTo("file:/mnt/nfs/");
+    assertThat(ioExecutor.getBackend(URI.create("file:/mnt/nfs/slow/1.jpg")))
+        .isEqualTo("file:/mnt/nfs/slow/");
+    assertThat(ioExecutor.getBackend(URI.create("https://example.org/1.jpg"))).isEqualTo("http");
+    assertThat(ioExecutor.getBackend(URI.create("classpath:/1.jpg"))).isEqualTo("classpath");
+  }
+
+  @Test
+  public void concurrencyIsBoundedPerBackend() throws Exception {
+    FileResourceIoConfig config = new FileResourceIoConfig();
+    config.getMaxConcurrency().put("file", 2);
+    FileResourceIoExecutor ioExecutor = new FileResourceIoExecutor(config);
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    AtomicInteger unboundedMaxActive = new AtomicInteger();
+    AtomicInteger unboundedActive = new AtomicInteger();
+    try {
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        URI uri = URI.create(i % 2 == 0 ? "file:/data/" + i : "classpath:/" + i);
+        boolean bounded = i % 2 == 0;
+        futures.add(
+            CompletableFuture.runAsync(
+                () -> {
+                  try (FileResourceIoExecutor.Permit permit = ioExecutor.acquire(uri)) {
+                    AtomicInteger counter = bounded ? active : unboundedActive;
+                    AtomicInteger max = bounded ? maxActive : unboundedMaxActive;
+                    max.accumulateAndGet(counter.incrementAndGet(), Math::max);
+                    Thread.sleep(50);
+                    counter.decrementAndGet();
+                  } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                  }
+                },
+                ioExecutor));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+    } finally {
+      ioExecutor.destroy();
+    }
+    assertThat(maxActive.get()).isEqualTo(2);
+    assertThat(unboundedMaxActive.get()).isGreaterThan(2);
+  }
+}
@@ -5,21 +5,39 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import de.digitalcollections.commons.file.backend.api.BatchFindResult;
 import de.digitalcollections.commons.file.business.api.FileResourceService;
 import de.digitalcollections.commons.file.config.SpringConfigCommonsFile;
 import de.digitalcollections.model.exception.ResourceIOException;
 import de.digitalcollections.model.exception.ResourceNotFoundException;
 import de.digitalcollections.model.file.MimeType;
 import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
@@ -30,6 +48,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
@@ -118,6 +137,483 @@ public class FileResourceRepositoryImplTest {
     assertThat(lastModified.getDayOfMonth() > 0).isTrue();
   }
 
+  @Test
+  public void testFindCached() throws Exception {
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(
+        Arrays.asList(
+            new IdentifierPatternToFileResourceUriResolverImpl("^(\\w{5})$", "classpath:/$1.xml")));
+    resolvedFileResourcesConfig.setCache(
+        new ResolutionCacheConfig(true, Duration.ofMinutes(1), 10));
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(resolvedFileResourcesConfig, null, resourceLoader);
+
+    FileResource first = fileResourceRepository.find("snafu", MimeType.MIME_APPLICATION_XML);
+    FileResource second = fileResourceRepository.find("snafu", MimeType.MIME_APPLICATION_XML);
+    assertThat(second.getUri()).isEqualTo(first.getUri());
+    assertThat(second.getSizeInBytes()).isEqualTo(first.getSizeInBytes());
+    assertThat(second.getLastModified()).isEqualTo(first.getLastModified());
+    assertThat(second.getFilename()).isEqualTo("snafu.xml");
+    assertThat(second.getUuid()).isNotEqualTo(first.getUuid());
+    assertThat(fileResourceRepository.getResolutionCacheStatistics().getHitCount()).isEqualTo(1);
+    assertThat(fileResourceRepository.getResolutionCacheStatistics().getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFindNegativeCached() throws Exception {
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(
+        Arrays.asList(
+            new IdentifierPatternToFileResourceUriResolverImpl("^(\\w{5})$", "classpath:/$1.xml")));
+    resolvedFileResourcesConfig.setNegativeCache(
+        new ResolutionCacheConfig(true, Duration.ofMinutes(1), 10));
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(resolvedFileResourcesConfig, null, resourceLoader);
+
+    for (int i = 0; i < 2; i++) {
+      assertThatThrownBy(() -> fileResourceRepository.find("nofil", MimeType.MIME_APPLICATION_XML))
+          .isInstanceOf(ResourceIOException.class);
+    }
+    assertThat(fileResourceRepository.getNegativeCacheStatistics().getHitCount()).isEqualTo(1);
+
+    fileResourceRepository.invalidate("nofil");
+    assertThat(fileResourceRepository.getNegativeCacheStatistics().getSize()).isZero();
+  }
+
+  @Test
+  public void testFindLocalFile(@TempDir Path tempDir) throws Exception {
+    Path file = Files.write(tempDir.resolve("local.json"), "{}".getBytes());
+    IdentifierPatternToFileResourceUriResolverImpl resolver =
+        new IdentifierPatternToFileResourceUriResolverImpl();
+    resolver.setPattern("^(\\w{5})$");
+    resolver.setSubstitutions(
+        Arrays.asList(
+            tempDir.toUri() + "missing/$1.json",
+            tempDir.toUri() + "$1.json",
+            tempDir.toUri() + "other.json"));
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(Arrays.asList(resolver));
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(resolvedFileResourcesConfig, null, resourceLoader);
+
+    FileResource resource = fileResourceRepository.find("local", MimeType.MIME_APPLICATION_JSON);
+    assertThat(resource.getUri()).isEqualTo(file.toUri());
+    assertThat(resource.getSizeInBytes()).isEqualTo(2);
+    assertThat(resource.getFilename()).isEqualTo("local.json");
+    assertThat(resource.getLastModified())
+        .isEqualTo(
+            Instant.ofEpochMilli(Files.getLastModifiedTime(file).toMillis())
+                .atOffset(ZoneOffset.UTC)
+                .toLocalDateTime());
+
+    assertThatThrownBy(() -> fileResourceRepository.find("other", MimeType.MIME_APPLICATION_XML))
+        .isInstanceOf(ResourceIOException.class);
+  }
+
+  @Test
+  public void testFindAfterPatternChange(@TempDir Path tempDir) throws Exception {
+    Files.write(tempDir.resolve("local.json"), "{}".getBytes());
+    Files.write(tempDir.resolve("12345.json"), "{}".getBytes());
+    IdentifierPatternToFileResourceUriResolverImpl resolver =
+        new IdentifierPatternToFileResourceUriResolverImpl();
+    resolver.setPattern("^(\\w{5})$");
+    resolver.setSubstitutions(Arrays.asList(tempDir.toUri() + "$1.json"));
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(new ArrayList<>(Arrays.asList(resolver)));
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(
+            resolvedFileResourcesConfig, Collections.emptyList(), resourceLoader);
+    assertThat(fileResourceRepository.find("local", MimeType.MIME_APPLICATION_JSON)).isNotNull();
+
+    // changed in place, e.g. by a refresh of the configuration properties
+    resolver.setPattern("^(\\d{5})$");
+    assertThatThrownBy(() -> fileResourceRepository.find("local", MimeType.MIME_APPLICATION_JSON))
+        .isInstanceOf(ResourceIOException.class);
+    assertThat(fileResourceRepository.find("12345", MimeType.MIME_APPLICATION_JSON)).isNotNull();
+
+    IdentifierPatternToFileResourceUriResolverImpl other =
+        new IdentifierPatternToFileResourceUriResolverImpl();
+    other.setPattern("^other_(\\w{5})$");
+    other.setSubstitutions(Arrays.asList(tempDir.toUri() + "$1.json"));
+    resolvedFileResourcesConfig.getPatterns().add(other);
+    assertThat(fileResourceRepository.find("other_local", MimeType.MIME_APPLICATION_JSON).getUri())
+        .isEqualTo(tempDir.resolve("local.json").toUri());
+    fileResourceRepository.destroy();
+  }
+
+  @Test
+  public void testFindBatch(@TempDir Path tempDir) throws Exception {
+    Files.createDirectory(tempDir.resolve("book"));
+    for (String page : Arrays.asList("00001", "00002", "00003")) {
+      Files.write(tempDir.resolve("book/" + page + ".json"), "{}".getBytes());
+    }
+    IdentifierPatternToFileResourceUriResolverImpl resolver =
+        new IdentifierPatternToFileResourceUriResolverImpl();
+    resolver.setPattern("^(\\d{5})$");
+    resolver.setSubstitutions(
+        Arrays.asList(tempDir.toUri() + "missing/$1.json", tempDir.toUri() + "book/$1.json"));
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(Arrays.asList(resolver));
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(
+            resolvedFileResourcesConfig, Collections.emptyList(), resourceLoader);
+
+    BatchFindResult result =
+        fileResourceRepository.find(
+            Arrays.asList("00003", "00001", "00004", "unknown", "00002", "00001"),
+            MimeType.MIME_APPLICATION_JSON);
+    assertThat(result.isComplete()).isFalse();
+    assertThat(result.getFileResources()).containsOnlyKeys("00003", "00001", "00002");
+    assertThat(result.getFileResources().keySet()).containsExactly("00003", "00001", "00002");
+    assertThat(result.getFileResources().get("00002").getUri())
+        .isEqualTo(tempDir.resolve("book/00002.json").toUri());
+    assertThat(result.getFileResources().get("00002").getSizeInBytes()).isEqualTo(2);
+    assertThat(result.getFailures()).containsOnlyKeys("00004", "unknown");
+    assertThat(result.getFailures().get("00004")).isInstanceOf(ResourceIOException.class);
+    fileResourceRepository.destroy();
+  }
+
+  @Test
+  public void testFindBatchWithOutdatedListing(@TempDir Path tempDir) throws Exception {
+    Files.write(tempDir.resolve("00001.json"), "{}".getBytes());
+    Files.write(tempDir.resolve("00002.json"), "{}".getBytes());
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(
+        Arrays.asList(
+            new IdentifierPatternToFileResourceUriResolverImpl(
+                "^(\\d{5})$", tempDir.toUri() + "$1.json")));
+    resolvedFileResourcesConfig.setNegativeCache(
+        new ResolutionCacheConfig(true, Duration.ofMinutes(1), 10));
+    // e.g. a network file system not reporting files written by other hosts
+    resolvedFileResourcesConfig.getDirectoryListingCache().setEnabled(true);
+    resolvedFileResourcesConfig.getDirectoryListingCache().setWatch(false);
+    FileResourceReadingConfig readingConfig = new FileResourceReadingConfig();
+    readingConfig.setBatchListingThreshold(2);
+    DirectoryListingCache directoryListingCache =
+        new DirectoryListingCache(resolvedFileResourcesConfig);
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(
+            resolvedFileResourcesConfig,
+            Collections.emptyList(),
+            resourceLoader,
+            readingConfig,
+            directoryListingCache,
+            new HttpFileResourceClient(new FileResourceHttpConfig()));
+
+    assertThat(
+            fileResourceRepository
+                .find(Arrays.asList("00001", "00002"), MimeType.MIME_APPLICATION_JSON)
+                .isComplete())
+        .isTrue();
+    List<String> identifiers = Arrays.asList("00001", "00002", "00003");
+    Files.write(tempDir.resolve("00003.json"), "{}".getBytes());
+    BatchFindResult result =
+        fileResourceRepository.find(identifiers, MimeType.MIME_APPLICATION_JSON);
+    assertThat(result.isComplete()).isTrue();
+    assertThat(fileResourceRepository.getDirectoryListingCacheStatistics().getHitCount())
+        .isEqualTo(1);
+    fileResourceRepository.destroy();
+    directoryListingCache.destroy();
+  }
+
+  @Test
+  public void testFindWildcardFilename(@TempDir Path tempDir) throws Exception {
+    Files.write(tempDir.resolve("00001_a.json"), "{}".getBytes());
+    IdentifierPatternToFileResourceUriResolverImpl resolver =
+        new IdentifierPatternToFileResourceUriResolverImpl();
+    resolver.setPattern("^(\\d{5})$");
+    resolver.setSubstitutions(Arrays.asList(tempDir.toUri() + "$1_*.json"));
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(Arrays.asList(resolver));
+    resolvedFileResourcesConfig.getDirectoryListingCache().setEnabled(true);
+    resolvedFileResourcesConfig.getDirectoryListingCache().setWatch(false);
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(resolvedFileResourcesConfig, null, resourceLoader);
+
+    assertThat(fileResourceRepository.find("00001", MimeType.MIME_APPLICATION_JSON).getFilename())
+        .isEqualTo("00001_a.json");
+    Files.write(tempDir.resolve("00002_b.json"), "{}".getBytes());
+    assertThatThrownBy(() -> fileResourceRepository.find("00002", MimeType.MIME_APPLICATION_JSON))
+        .isInstanceOf(ResourceIOException.class);
+    assertThat(fileResourceRepository.getDirectoryListingCacheStatistics().getHitCount())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testFindHttp() throws Exception {
+    byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    HttpHandler handler =
+        exchange -> {
+          if (!exchange.getRequestURI().getPath().equals("/content.txt")) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+          }
+          exchange.getResponseHeaders().set("Last-Modified", "Tue, 15 Nov 1994 12:45:26 GMT");
+          String range = exchange.getRequestHeaders().getFirst("Range");
+          if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+            exchange.sendResponseHeaders(200, -1);
+          } else if (range != null) {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int from = Integer.parseInt(bounds[0]);
+            int to = Integer.parseInt(bounds[1]);
+            exchange.sendResponseHeaders(206, to - from + 1);
+            exchange.getResponseBody().write(content, from, to - from + 1);
+          } else {
+            exchange.sendResponseHeaders(200, content.length);
+            exchange.getResponseBody().write(content);
+          }
+          exchange.close();
+        };
+    server.createContext("/", handler);
+    server.start();
+    try {
+      String baseUrl = "http://localhost:" + server.getAddress().getPort();
+      IdentifierPatternToFileResourceUriResolverImpl resolver =
+          new IdentifierPatternToFileResourceUriResolverImpl();
+      resolver.setPattern("^(\\w+)$");
+      resolver.setSubstitutions(Arrays.asList(baseUrl + "/missing/$1.txt", baseUrl + "/$1.txt"));
+      IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+          new IdentifierPatternToFileResourceUriResolvingConfig();
+      resolvedFileResourcesConfig.setPatterns(Arrays.asList(resolver));
+      FileResourceRepositoryImpl fileResourceRepository =
+          new FileResourceRepositoryImpl(resolvedFileResourcesConfig, null, resourceLoader);
+
+      FileResource resource = fileResourceRepository.find("content", MimeType.fromExtension("txt"));
+      assertThat(resource.getUri()).isEqualTo(URI.create(baseUrl + "/content.txt"));
+      assertThat(resource.getSizeInBytes()).isEqualTo(10);
+      assertThat(resource.getLastModified()).isEqualTo(LocalDateTime.of(1994, 11, 15, 12, 45, 26));
+      try (InputStream is = fileResourceRepository.getInputStream(resource)) {
+        assertThat(is.readAllBytes()).isEqualTo(content);
+      }
+      try (InputStream is = fileResourceRepository.getInputStream(resource, 3, 4)) {
+        assertThat(new String(is.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("3456");
+      }
+      // empty ranges are not requested at all
+      server.removeContext("/");
+      try (InputStream is = fileResourceRepository.getInputStream(resource, 3, 0)) {
+        assertThat(is.read()).isEqualTo(-1);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertThat(fileResourceRepository.transferTo(resource, 3, 0, Channels.newChannel(out)))
+          .isZero();
+      server.createContext("/", handler);
+      assertThat(fileResourceRepository.readAsync(resource).get(10, TimeUnit.SECONDS))
+          .isEqualTo(ByteBuffer.wrap(content));
+
+      assertThatThrownBy(() -> fileResourceRepository.find("other", MimeType.fromExtension("txt")))
+          .isInstanceOf(ResourceIOException.class);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testFindHttpWithoutHead() throws Exception {
+    byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          String path = exchange.getRequestURI().getPath();
+          if (path.startsWith("/broken/")) {
+            exchange.sendResponseHeaders(500, -1);
+          } else if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+          } else if (!path.equals("/content.txt")) {
+            exchange.sendResponseHeaders(404, -1);
+          } else if ("bytes=0-0".equals(exchange.getRequestHeaders().getFirst("Range"))) {
+            exchange.getResponseHeaders().set("Last-Modified", "Tue, 15 Nov 1994 12:45:26 GMT");
+            exchange.getResponseHeaders().set("Content-Range", "bytes 0-0/" + content.length);
+            exchange.sendResponseHeaders(206, 1);
+            exchange.getResponseBody().write(content, 0, 1);
+          } else {
+            exchange.sendResponseHeaders(200, content.length);
+            exchange.getResponseBody().write(content);
+          }
+          exchange.close();
+        });
+    server.start();
+    try {
+      String baseUrl = "http://localhost:" + server.getAddress().getPort();
+      IdentifierPatternToFileResourceUriResolverImpl resolver =
+          new IdentifierPatternToFileResourceUriResolverImpl();
+      resolver.setPattern("^(\\w+)$");
+      resolver.setSubstitutions(
+          Arrays.asList(
+              baseUrl + "/broken/$1.txt", baseUrl + "/missing/$1.txt", baseUrl + "/$1.txt"));
+      IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+          new IdentifierPatternToFileResourceUriResolvingConfig();
+      resolvedFileResourcesConfig.setPatterns(Arrays.asList(resolver));
+      FileResourceRepositoryImpl fileResourceRepository =
+          new FileResourceRepositoryImpl(resolvedFileResourcesConfig, null, resourceLoader);
+
+      // the failing candidate is skipped, the server rejecting HEAD is asked for the first byte
+      FileResource resource = fileResourceRepository.find("content", MimeType.fromExtension("txt"));
+      assertThat(resource.getUri()).isEqualTo(URI.create(baseUrl + "/content.txt"));
+      assertThat(resource.getSizeInBytes()).isEqualTo(10);
+      assertThat(resource.getLastModified()).isEqualTo(LocalDateTime.of(1994, 11, 15, 12, 45, 26));
+
+      // no candidate resolved, the probing failure is reported
+      assertThatThrownBy(() -> fileResourceRepository.find("other", MimeType.fromExtension("txt")))
+          .isInstanceOf(ResourceIOException.class)
+          .hasCauseInstanceOf(ResourceIOException.class);
+      fileResourceRepository.destroy();
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testTransferTo(@TempDir Path tempDir) throws Exception {
+    byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+    FileResource localResource = new FileResource();
+    localResource.setUri(Files.write(tempDir.resolve("content.txt"), content).toUri());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(resourceRepository.transferTo(localResource, Channels.newChannel(out)))
+        .isEqualTo(10);
+    assertThat(out.toByteArray()).isEqualTo(content);
+
+    FileResource classpathResource =
+        resourceRepository.find("snafu", MimeType.MIME_APPLICATION_XML);
+    assertThat(resourceRepository.transferTo(classpathResource, new ByteArrayOutputStream()))
+        .isEqualTo(71);
+
+    FileResource missingResource = new FileResource();
+    missingResource.setUri(tempDir.resolve("missing.txt").toUri());
+    assertThatThrownBy(() -> resourceRepository.transferTo(missingResource, out))
+        .isInstanceOf(ResourceNotFoundException.class);
+  }
+
+  @Test
+  public void testReadRange(@TempDir Path tempDir) throws Exception {
+    FileResource localResource = new FileResource();
+    localResource.setUri(
+        Files.write(tempDir.resolve("content.txt"), "0123456789".getBytes(StandardCharsets.UTF_8))
+            .toUri());
+    try (InputStream is = resourceRepository.getInputStream(localResource, 3, 4)) {
+      assertThat(new String(is.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("3456");
+    }
+    try (InputStream is = resourceRepository.getInputStream(localResource, 8, -1)) {
+      assertThat(new String(is.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("89");
+    }
+    try (InputStream is = resourceRepository.getInputStream(localResource, 20, 5)) {
+      assertThat(is.read()).isEqualTo(-1);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(resourceRepository.transferTo(localResource, 5, 100, Channels.newChannel(out)))
+        .isEqualTo(5);
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("56789");
+
+    FileResource classpathResource =
+        resourceRepository.find("snafu", MimeType.MIME_APPLICATION_XML);
+    try (InputStream is = resourceRepository.getInputStream(classpathResource, 40, 11)) {
+      assertThat(new String(is.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("rootElement");
+    }
+  }
+
+  @Test
+  public void testGetAsByteBuffer(@TempDir Path tempDir) throws Exception {
+    FileResourceReadingConfig readingConfig = new FileResourceReadingConfig();
+    readingConfig.setMemoryMappingThreshold(DataSize.ofBytes(8));
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(
+            new IdentifierPatternToFileResourceUriResolvingConfig(),
+            null,
+            resourceLoader,
+            readingConfig,
+            new DirectoryListingCache(new DirectoryListingCacheConfig()),
+            new HttpFileResourceClient(new FileResourceHttpConfig()));
+
+    FileResource smallResource = new FileResource();
+    smallResource.setUri(Files.write(tempDir.resolve("small.txt"), new byte[] {1, 2, 3}).toUri());
+    ByteBuffer small = fileResourceRepository.getAsByteBuffer(smallResource);
+    assertThat(small).isNotInstanceOf(MappedByteBuffer.class);
+    assertThat(small.capacity()).isEqualTo(3);
+    assertThat(small.remaining()).isEqualTo(3);
+
+    FileResource largeResource = new FileResource();
+    largeResource.setUri(Files.write(tempDir.resolve("large.txt"), new byte[16]).toUri());
+    ByteBuffer large = fileResourceRepository.getAsByteBuffer(largeResource);
+    assertThat(large).isInstanceOf(MappedByteBuffer.class);
+    assertThat(large.isReadOnly()).isTrue();
+    assertThat(large.remaining()).isEqualTo(16);
+  }
+
+  @Test
+  public void testReadAsync(@TempDir Path tempDir) throws Exception {
+    byte[] content = new byte[100_000];
+    new Random(42).nextBytes(content);
+    FileResource resource = new FileResource();
+    resource.setUri(Files.write(tempDir.resolve("content.bin"), content).toUri());
+    ByteBuffer buffer = resourceRepository.readAsync(resource).get(10, TimeUnit.SECONDS);
+    assertThat(buffer.position()).isZero();
+    assertThat(buffer).isEqualTo(ByteBuffer.wrap(content));
+
+    FileResource missingResource = new FileResource();
+    missingResource.setUri(tempDir.resolve("missing.bin").toUri());
+    assertThatThrownBy(() -> resourceRepository.readAsync(missingResource).get())
+        .hasCauseInstanceOf(ResourceNotFoundException.class);
+
+    // read by a blocking stream on an executor
+    FileResource classpathResource = new FileResource();
+    classpathResource.setUri(URI.create("classpath:/snafu.xml"));
+    assertThat(resourceRepository.readAsync(classpathResource).get(10, TimeUnit.SECONDS))
+        .isEqualTo(resourceRepository.getAsByteBuffer(classpathResource));
+  }
+
+  @Test
+  public void openStreamsDoNotHoldPermits(@TempDir Path tempDir) throws Exception {
+    FileResourceIoConfig ioConfig = new FileResourceIoConfig();
+    ioConfig.getMaxConcurrency().put("file", 1);
+    FileResourceIoExecutor ioExecutor = new FileResourceIoExecutor(ioConfig);
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(
+        Arrays.asList(
+            new IdentifierPatternToFileResourceUriResolverImpl(
+                "^(\\w{5})$", tempDir.toUri() + "$1.json")));
+    FileResourceRepositoryImpl fileResourceRepository =
+        new FileResourceRepositoryImpl(
+            resolvedFileResourcesConfig,
+            Collections.emptyList(),
+            resourceLoader,
+            new FileResourceReadingConfig(),
+            new DirectoryListingCache(new DirectoryListingCacheConfig()),
+            new HttpFileResourceClient(new FileResourceHttpConfig()),
+            ioExecutor);
+    Files.write(tempDir.resolve("first.json"), "content".getBytes());
+    Files.write(tempDir.resolve("other.json"), "content".getBytes());
+    try {
+      FileResource resource = fileResourceRepository.find("first", MimeType.MIME_APPLICATION_JSON);
+      // e.g. resolving references while parsing a document
+      try (InputStream is = fileResourceRepository.getInputStream(resource);
+          ReadableByteChannel channel =
+              fileResourceRepository.getReadableByteChannel(resource, 2, 3)) {
+        assertThat(is.read()).isEqualTo('c');
+        assertThat(fileResourceRepository.find("other", MimeType.MIME_APPLICATION_JSON))
+            .isNotNull();
+        assertThat(fileResourceRepository.readAsync(resource).get(10, TimeUnit.SECONDS).remaining())
+            .isEqualTo(7);
+        assertThat(channel.read(ByteBuffer.allocate(8))).isEqualTo(3);
+        assertThat(new String(is.readAllBytes())).isEqualTo("ontent");
+      }
+      ioExecutor.tryAcquire(resource.getUri()).close();
+    } finally {
+      fileResourceRepository.destroy();
+      ioExecutor.destroy();
+    }
+  }
+
   @Test
   public void testFindMimeWildcard() throws Exception {
     FileResource res = resourceRepository.find("snafu", MimeType.MIME_WILDCARD);
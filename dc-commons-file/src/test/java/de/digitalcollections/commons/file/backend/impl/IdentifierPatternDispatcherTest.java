@@ -0,0 +1,98 @@
+package de.digitalcollections.commons.file.backend.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class IdentifierPatternDispatcherTest {
+
+  private static final List<String> PATTERNS =
+      Arrays.asList(
+          "^(\\w{5})$",
+          "^(\\w{3})(\\d{4})(\\d{4})$",
+          "news_(\\d{8})",
+          "^(?:bav:)?([A-Z]{3})-([A-Z]{3})-(\\w{12})(\\w{4})$",
+          "^([0-9a-f]{4})([0-9a-f]{4})-([0-9a-f]{4})-([1-5][0-9a-f]{3})-([89ab][0-9a-f]{3})-([0-9a-f]{4})([0-9a-f]{4})([0-9a-f]{4})$",
+          "^(abc|xyz)_(\\d+)$",
+          "^\\.hidden_(\\d+)$",
+          "^x?y(\\d+)$",
+          "^.*$");
+
+  private static IdentifierPatternDispatcher createDispatcher() {
+    return new IdentifierPatternDispatcher(
+        PATTERNS.stream()
+            .map(p -> new IdentifierPatternToFileResourceUriResolverImpl(p, "file:/$0"))
+            .collect(Collectors.toList()));
+  }
+
+  private static String firstByLinearScan(String identifier) {
+    return PATTERNS.stream().filter(identifier::matches).findFirst().orElse(null);
+  }
+
+  @Test
+  public void keepsFirstMatchOrdering() {
+    IdentifierPatternDispatcher dispatcher = createDispatcher();
+    for (String identifier :
+        Arrays.asList(
+            "snafu",
+            "bsb00001000",
+            "news_12345678",
+            "bav:ASM-OBJ-0000000000000736",
+            "ASM-OBJ-0000000000000736",
+            "a30cf362-5992-4f5a-8de0-61938134e721",
+            "xyz_12",
+            ".hidden_1",
+            "y42",
+            "xy42",
+            "",
+            "ünicode")) {
+      assertThat(dispatcher.findFirst(identifier).getPattern())
+          .as(identifier)
+          .isEqualTo(firstByLinearScan(identifier));
+    }
+  }
+
+  @Test
+  public void findsAllMatchingPatterns() {
+    IdentifierPatternDispatcher dispatcher = createDispatcher();
+    assertThat(dispatcher.findAll("snafu"))
+        .extracting(IdentifierPatternToFileResourceUriResolverImpl::getPattern)
+        .containsExactly("^(\\w{5})$", "^.*$");
+  }
+
+  @Test
+  public void detectsChangedPatterns() {
+    List<IdentifierPatternToFileResourceUriResolverImpl> resolvers =
+        new ArrayList<>(
+            Arrays.asList(
+                new IdentifierPatternToFileResourceUriResolverImpl("news_(\\d{8})", "file:/$1")));
+    IdentifierPatternDispatcher dispatcher = new IdentifierPatternDispatcher(resolvers);
+    assertThat(dispatcher.isCompiledFrom(resolvers)).isTrue();
+
+    resolvers.get(0).setPattern("^(\\w{5})$");
+    assertThat(dispatcher.isCompiledFrom(resolvers)).isFalse();
+    dispatcher = new IdentifierPatternDispatcher(resolvers);
+    assertThat(dispatcher.findFirst("snafu")).isSameAs(resolvers.get(0));
+
+    resolvers.add(new IdentifierPatternToFileResourceUriResolverImpl("^.*$", "file:/$0"));
+    assertThat(dispatcher.isCompiledFrom(resolvers)).isFalse();
+    dispatcher = new IdentifierPatternDispatcher(resolvers);
+    assertThat(dispatcher.findFirst("bsb00001000")).isSameAs(resolvers.get(1));
+    assertThat(dispatcher.isCompiledFrom(resolvers)).isTrue();
+  }
+
+  @Test
+  public void returnsNullWithoutMatch() {
+    IdentifierPatternDispatcher dispatcher =
+        new IdentifierPatternDispatcher(
+            Arrays.asList(
+                new IdentifierPatternToFileResourceUriResolverImpl("news_(\\d{8})", "file:/$1")));
+    assertThat(dispatcher.findFirst("news_1")).isNull();
+    assertThat(dispatcher.findFirst("bsb00001000")).isNull();
+    assertThat(new IdentifierPatternDispatcher(null).findFirst("snafu")).isNull();
+  }
+}
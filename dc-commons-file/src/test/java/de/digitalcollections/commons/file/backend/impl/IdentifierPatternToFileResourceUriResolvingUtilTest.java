@@ -1,15 +1,27 @@
 package de.digitalcollections.commons.file.backend.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import de.digitalcollections.model.exception.ResourceIOException;
 import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class IdentifierPatternToFileResourceUriResolvingUtilTest {
 
@@ -69,6 +81,215 @@ public class IdentifierPatternToFileResourceUriResolvingUtilTest {
     assertThat(keys).containsExactly("news_12345678", "news_23456789");
   }
 
+  private static IdentifierPatternToFileResourceUriResolvingConfig createKeyIndexConfig(
+      Path directory, Path indexDirectory, boolean watch) {
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(
+        Arrays.asList(
+            new IdentifierPatternToFileResourceUriResolverImpl(
+                "news_(\\d{8})", directory.toUri() + "news_$1.md")));
+    resolvedFileResourcesConfig.getKeyIndex().setEnabled(true);
+    resolvedFileResourcesConfig.getKeyIndex().setDirectory(indexDirectory.toString());
+    resolvedFileResourcesConfig.getKeyIndex().setWatch(watch);
+    return resolvedFileResourcesConfig;
+  }
+
+  @Test
+  public void findKeysFromKeyIndex(@TempDir Path tempDir) throws Exception {
+    Path directory = Files.createDirectory(tempDir.resolve("news"));
+    for (String filename :
+        Arrays.asList("news_20230101.md", "news_20230102.md", "news_20240101.md", "README.md")) {
+      Files.createFile(directory.resolve(filename));
+    }
+    Path indexDirectory = tempDir.resolve("index");
+    IdentifierPatternToFileResourceUriResolvingUtil util =
+        new IdentifierPatternToFileResourceUriResolvingUtil(
+            createKeyIndexConfig(directory, indexDirectory, false));
+
+    assertThat(util.findKeys("news_(\\d{8})"))
+        .containsExactlyInAnyOrder("news_20230101", "news_20230102", "news_20240101");
+    assertThat(util.findKeys("news_(\\d{8})", "news_2023"))
+        .containsExactly("news_20230101", "news_20230102");
+    assertThat(util.findKeys("news_(\\d{8})", null, "news_20230101", 1))
+        .containsExactly("news_20230102");
+    assertThat(Files.list(indexDirectory)).hasSize(1);
+
+    // a written index is rebuilt if the directory has been modified since
+    Files.delete(directory.resolve("news_20240101.md"));
+    Files.setLastModifiedTime(
+        directory, FileTime.fromMillis(Files.getLastModifiedTime(directory).toMillis() + 10_000));
+    util =
+        new IdentifierPatternToFileResourceUriResolvingUtil(
+            createKeyIndexConfig(directory, indexDirectory, false));
+    assertThat(util.findKeys("news_(\\d{8})", ""))
+        .containsExactly("news_20230101", "news_20230102");
+  }
+
+  @Test
+  public void findKeysInSeveralDirectories(@TempDir Path tempDir) throws Exception {
+    Path images = Files.createDirectory(tempDir.resolve("images"));
+    Path texts = Files.createDirectory(tempDir.resolve("texts"));
+    Files.createFile(images.resolve("news_20230101.jpg"));
+    Files.createFile(images.resolve("news_20230102.jpg"));
+    Files.createFile(texts.resolve("news_20230102.md"));
+    Files.createFile(texts.resolve("news_20230103.md"));
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    IdentifierPatternToFileResourceUriResolverImpl resolver =
+        new IdentifierPatternToFileResourceUriResolverImpl();
+    resolver.setPattern("news_(\\d{8})");
+    resolver.setSubstitutions(
+        Arrays.asList(images.toUri() + "news_$1.jpg", texts.toUri() + "news_$1.md"));
+    resolvedFileResourcesConfig.setPatterns(Arrays.asList(resolver));
+    resolvedFileResourcesConfig.getKeyScan().setDirectoryTimeout(Duration.ofMinutes(1));
+    IdentifierPatternToFileResourceUriResolvingUtil util =
+        new IdentifierPatternToFileResourceUriResolvingUtil(resolvedFileResourcesConfig);
+
+    assertThat(util.findKeys("news_(\\d{8})"))
+        .containsExactlyInAnyOrder("news_20230101", "news_20230102", "news_20230103");
+    util.destroy();
+  }
+
+  @Test
+  public void findKeysFailsAfterDirectoryTimeout() throws Exception {
+    @SuppressWarnings("unchecked")
+    DirectoryStream<Path> mockDirectoryStream = mock(DirectoryStream.class);
+    when(mockDirectoryStream.iterator())
+        .then(
+            invocation -> {
+              Thread.sleep(10_000);
+              return Collections.emptyIterator();
+            });
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(
+        Arrays.asList(
+            new IdentifierPatternToFileResourceUriResolverImpl(
+                "news_(\\d{8})", "file:///opt/news/news_$1.md")));
+    resolvedFileResourcesConfig.getKeyScan().setDirectoryTimeout(Duration.ofMillis(100));
+    IdentifierPatternToFileResourceUriResolvingUtil util =
+        new IdentifierPatternToFileResourceUriResolvingUtil(resolvedFileResourcesConfig);
+    util.overrideDirectoryStream(mockDirectoryStream);
+
+    long start = System.currentTimeMillis();
+    assertThatThrownBy(() -> util.findKeys("news_(\\d{8})"))
+        .isInstanceOf(ResourceIOException.class)
+        .hasMessageContaining("Timeout");
+    assertThat(System.currentTimeMillis() - start).isLessThan(5_000);
+    util.destroy();
+  }
+
+  @Test
+  public void streamKeys(@TempDir Path tempDir) throws Exception {
+    Path directory = Files.createDirectory(tempDir.resolve("news"));
+    for (String filename :
+        Arrays.asList("news_20230101.md", "news_20230102.md", "news_20240101.md", "README.md")) {
+      Files.createFile(directory.resolve(filename));
+    }
+    Files.createDirectory(directory.resolve("news_20250101.md"));
+    IdentifierPatternToFileResourceUriResolvingConfig resolvedFileResourcesConfig =
+        new IdentifierPatternToFileResourceUriResolvingConfig();
+    resolvedFileResourcesConfig.setPatterns(
+        Arrays.asList(
+            new IdentifierPatternToFileResourceUriResolverImpl(
+                "news_(\\d{8})", directory.toUri() + "news_$1.md")));
+    IdentifierPatternToFileResourceUriResolvingUtil util =
+        new IdentifierPatternToFileResourceUriResolvingUtil(resolvedFileResourcesConfig);
+
+    try (Stream<String> keys = util.streamKeys("news_(\\d{8})")) {
+      assertThat(keys).containsExactlyInAnyOrder("news_20230101", "news_20230102", "news_20240101");
+    }
+    Set<String> pagedKeys = new HashSet<>();
+    for (int offset = 0; offset < 3; offset += 2) {
+      try (Stream<String> keys = util.streamKeys("news_(\\d{8})", offset, 2)) {
+        pagedKeys.addAll(keys.collect(Collectors.toList()));
+      }
+    }
+    assertThat(pagedKeys).isEqualTo(util.findKeys("news_(\\d{8})"));
+
+    // no permit is held while the keys are consumed
+    FileResourceIoConfig ioConfig = new FileResourceIoConfig();
+    ioConfig.getMaxConcurrency().put("file", 1);
+    FileResourceIoExecutor ioExecutor = new FileResourceIoExecutor(ioConfig);
+    IdentifierPatternToFileResourceUriResolvingUtil boundedUtil =
+        new IdentifierPatternToFileResourceUriResolvingUtil(
+            resolvedFileResourcesConfig,
+            new DirectoryListingCache(resolvedFileResourcesConfig),
+            new KeyIndex(resolvedFileResourcesConfig),
+            ioExecutor);
+    try (Stream<String> keys = boundedUtil.streamKeys("news_(\\d{8})")) {
+      keys.forEach(key -> ioExecutor.tryAcquire(directory.toUri()).close());
+    }
+    boundedUtil.destroy();
+    ioExecutor.destroy();
+  }
+
+  @Test
+  public void keyIndexIsUpdatedByWatchEvents(@TempDir Path tempDir) throws Exception {
+    Path directory = Files.createDirectory(tempDir.resolve("news"));
+    Files.createFile(directory.resolve("news_20230101.md"));
+    KeyIndex keyIndex =
+        new KeyIndex(createKeyIndexConfig(directory, tempDir.resolve("index"), true));
+    IdentifierPatternToFileResourceUriResolvingUtil util =
+        new IdentifierPatternToFileResourceUriResolvingUtil(
+            createKeyIndexConfig(directory, tempDir.resolve("index"), true),
+            new DirectoryListingCache(new DirectoryListingCacheConfig()),
+            keyIndex);
+    try {
+      NavigableSet<String> keys = util.findKeys("news_(\\d{8})", null);
+      assertThat(keys).containsExactly("news_20230101");
+
+      Files.createFile(directory.resolve("news_20230102.md"));
+      // replaced atomically, a second create event for the same file
+      Files.move(
+          Files.createFile(directory.resolve("news.tmp")),
+          directory.resolve("news_20230102.md"),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      Files.delete(directory.resolve("news_20230101.md"));
+      long timeout = System.currentTimeMillis() + 30_000;
+      while (keys.contains("news_20230101") && System.currentTimeMillis() < timeout) {
+        Thread.sleep(50);
+      }
+      assertThat(keys).containsExactly("news_20230102");
+
+      Files.delete(directory.resolve("news_20230102.md"));
+      while (!keys.isEmpty() && System.currentTimeMillis() < timeout) {
+        Thread.sleep(50);
+      }
+      assertThat(keys).isEmpty();
+    } finally {
+      util.destroy();
+      keyIndex.destroy();
+    }
+  }
+
+  @Test
+  public void ownedWatchersAreClosedByDestroy(@TempDir Path tempDir) throws Exception {
+    Path directory = Files.createDirectory(tempDir.resolve("news"));
+    Files.createFile(directory.resolve("news_20230101.md"));
+    IdentifierPatternToFileResourceUriResolvingConfig config =
+        createKeyIndexConfig(directory, tempDir.resolve("index"), true);
+    config.getDirectoryListingCache().setEnabled(true);
+    config.getDirectoryListingCache().setWatch(true);
+    Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+    IdentifierPatternToFileResourceUriResolvingUtil util =
+        new IdentifierPatternToFileResourceUriResolvingUtil(config);
+    assertThat(util.findKeys("news_(\\d{8})")).containsExactly("news_20230101");
+    Set<Thread> watchThreads =
+        Thread.getAllStackTraces().keySet().stream()
+            .filter(t -> !threadsBefore.contains(t) && t.getName().endsWith("-watch"))
+            .collect(Collectors.toSet());
+    assertThat(watchThreads).hasSize(2);
+
+    util.destroy();
+    for (Thread watchThread : watchThreads) {
+      watchThread.join(30_000);
+      assertThat(watchThread.isAlive()).as(watchThread.getName()).isFalse();
+    }
+  }
+
   @Test
   public void testSplitEqually() {
     String[] expectedResult = new String[] {"Theq", "uick", "brow", "nfox", "jump", "s"};
@@ -0,0 +1,97 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class ExpiringCacheTest {
+
+  @Test
+  public void entriesExpireAfterTtl() {
+    AtomicLong now = new AtomicLong();
+    ExpiringCache<String, String> cache =
+        new ExpiringCache<>(Duration.ofNanos(100), 10, new LruEvictionPolicy<>(), now::get);
+    cache.put("a", "A");
+    assertThat(cache.get("a")).isEqualTo("A");
+    now.set(100);
+    assertThat(cache.get("a")).isNull();
+
+    CacheStatistics statistics = cache.getStatistics();
+    assertThat(statistics.getHitCount()).isEqualTo(1);
+    assertThat(statistics.getMissCount()).isEqualTo(1);
+    assertThat(statistics.getExpirationCount()).isEqualTo(1);
+    assertThat(statistics.getSize()).isZero();
+  }
+
+  @Test
+  public void lruEvictsLeastRecentlyUsed() {
+    ExpiringCache<String, String> cache =
+        new ExpiringCache<>(null, 2, EvictionPolicy.forName("lru"));
+    cache.put("a", "A");
+    cache.put("b", "B");
+    cache.get("a");
+    cache.put("c", "C");
+    assertThat(cache.get("a")).isEqualTo("A");
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.get("c")).isEqualTo("C");
+    assertThat(cache.getStatistics().getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void fifoEvictsOldestInsertion() {
+    ExpiringCache<String, String> cache =
+        new ExpiringCache<>(null, 2, EvictionPolicy.forName("fifo"));
+    cache.put("a", "A");
+    cache.put("b", "B");
+    cache.get("a");
+    cache.put("c", "C");
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.get("b")).isEqualTo("B");
+  }
+
+  @Test
+  public void customPolicyByClassName() {
+    EvictionPolicy<String> policy = EvictionPolicy.forName(FifoEvictionPolicy.class.getName());
+    assertThat(policy).isInstanceOf(FifoEvictionPolicy.class);
+  }
+
+  @Test
+  public void entriesAreBoundedByWeight() {
+    ExpiringCache<String, String> cache =
+        new ExpiringCache<>(null, 10, 5, String::length, EvictionPolicy.forName("lru"));
+    cache.put("a", "AA");
+    cache.put("b", "BB");
+    cache.get("a");
+    cache.put("c", "CC");
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.getWeight()).isEqualTo(4);
+
+    cache.put("a", "A");
+    assertThat(cache.getWeight()).isEqualTo(3);
+    cache.put("d", "DDDDDD");
+    assertThat(cache.get("d")).isNull();
+    assertThat(cache.getStatistics().getSize()).isEqualTo(2);
+
+    cache.invalidate("c");
+    assertThat(cache.getWeight()).isEqualTo(1);
+  }
+
+  @Test
+  public void lfuEvictsLeastFrequentlyUsed() {
+    ExpiringCache<String, String> cache =
+        new ExpiringCache<>(null, 2, EvictionPolicy.forName("lfu"));
+    cache.put("a", "A");
+    cache.put("b", "B");
+    cache.get("a");
+    cache.get("a");
+    cache.get("b");
+    cache.put("c", "C");
+    assertThat(cache.get("b")).isNull();
+    cache.get("c");
+    cache.put("d", "D");
+    assertThat(cache.get("a")).isEqualTo("A");
+    assertThat(cache.get("c")).isNull();
+  }
+}
@@ -0,0 +1,84 @@
+package de.digitalcollections.commons.file.backend.impl.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTest {
+
+  @Test
+  public void concurrentCallsShareOneResult() throws Exception {
+    SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(5);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      results.add(
+          executor.submit(
+              () ->
+                  singleFlight.execute(
+                      "a",
+                      () -> {
+                        running.countDown();
+                        try {
+                          release.await();
+                        } catch (InterruptedException e) {
+                          Thread.currentThread().interrupt();
+                        }
+                        return "A" + calls.incrementAndGet();
+                      })));
+      running.await();
+      for (int i = 0; i < 4; i++) {
+        results.add(
+            executor.submit(() -> singleFlight.execute("a", () -> "A" + calls.incrementAndGet())));
+      }
+      while (singleFlight.getSharedCount() < 4) {
+        Thread.sleep(1);
+      }
+      release.countDown();
+      for (Future<String> result : results) {
+        assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("A1");
+      }
+      assertThat(calls.get()).isEqualTo(1);
+
+      // finished calls are not cached
+      assertThat(singleFlight.execute("a", () -> "A" + calls.incrementAndGet())).isEqualTo("A2");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void exceptionsAreRethrown() {
+    SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    assertThatThrownBy(
+            () ->
+                singleFlight.execute(
+                    "a",
+                    () -> {
+                      throw new ResourceNotFoundException("a");
+                    }))
+        .isInstanceOf(ResourceNotFoundException.class);
+    assertThatThrownBy(
+            () ->
+                singleFlight.execute(
+                    "a",
+                    () -> {
+                      throw new IllegalStateException("a");
+                    }))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(singleFlight.getSharedCount()).isZero();
+  }
+}
@@ -0,0 +1,62 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.digitalcollections.commons.file.backend.impl.FileResourceIoConfig;
+import de.digitalcollections.commons.file.backend.impl.FileResourceIoExecutor;
+import de.digitalcollections.commons.file.backend.impl.FileResourceRepositoryImpl;
+import de.digitalcollections.commons.file.backend.impl.IdentifierPatternToFileResourceUriResolvingConfig;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+public class AsyncFileResourceServiceImplTest {
+
+  private final FileResourceIoExecutor ioExecutor =
+      new FileResourceIoExecutor(new FileResourceIoConfig());
+  private final AsyncFileResourceServiceImpl asyncService =
+      new AsyncFileResourceServiceImpl(
+          new FileResourceServiceImpl(
+              new FileResourceRepositoryImpl(
+                  new IdentifierPatternToFileResourceUriResolvingConfig(),
+                  null,
+                  new DefaultResourceLoader())),
+          ioExecutor);
+
+  @AfterEach
+  public void tearDown() {
+    ioExecutor.destroy();
+  }
+
+  @Test
+  public void readsConcurrently(@TempDir Path tempDir) throws Exception {
+    FileResource first = new FileResource();
+    first.setUri(Files.write(tempDir.resolve("first.txt"), "first".getBytes()).toUri());
+    FileResource second = new FileResource();
+    second.setUri(Files.write(tempDir.resolve("second.txt"), "second".getBytes()).toUri());
+
+    CompletableFuture<String> firstContent =
+        asyncService.getAsString(first, StandardCharsets.UTF_8);
+    CompletableFuture<byte[]> secondContent = asyncService.getAsBytes(second);
+    assertThat(firstContent.get()).isEqualTo("first");
+    assertThat(secondContent.get()).isEqualTo("second".getBytes());
+  }
+
+  @Test
+  public void completesExceptionally(@TempDir Path tempDir) {
+    FileResource missing = new FileResource();
+    missing.setUri(tempDir.resolve("missing.txt").toUri());
+    assertThatThrownBy(() -> asyncService.getAsBytes(missing).get())
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(ResourceNotFoundException.class);
+  }
+}
@@ -0,0 +1,175 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ByteBufferPublisherTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  private static class CollectingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+    private final AtomicInteger chunks = new AtomicInteger();
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+    private volatile Flow.Subscription subscription;
+
+    @Override
+    public void onComplete() {
+      result.complete(content.toByteArray());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+      // the buffer is recycled after returning
+      byte[] bytes = new byte[item.remaining()];
+      item.get(bytes);
+      content.write(bytes, 0, bytes.length);
+      chunks.incrementAndGet();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+  }
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void chunksArePublishedOnDemand() throws Exception {
+    byte[] content = new byte[10_000];
+    new Random(42).nextBytes(content);
+    ByteBufferPool pool = new ByteBufferPool(1024, 4, true);
+    ByteBufferPublisher publisher =
+        new ByteBufferPublisher(
+            () -> Channels.newChannel(new ByteArrayInputStream(content)), pool, executor);
+
+    CollectingSubscriber subscriber = new CollectingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(2);
+    Thread.sleep(100);
+    assertThat(subscriber.chunks.get()).isEqualTo(2);
+    assertThat(subscriber.result).isNotDone();
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertThat(subscriber.result.get(10, TimeUnit.SECONDS)).isEqualTo(content);
+    assertThat(subscriber.chunks.get()).isEqualTo(10);
+
+    // the buffer has been returned to the pool
+    ByteBuffer buffer = pool.acquire();
+    assertThat(buffer.isDirect()).isTrue();
+    assertThat(buffer.capacity()).isEqualTo(1024);
+  }
+
+  @Test
+  public void chunksAreBoundedByTheChunkSize() throws Exception {
+    byte[] content = new byte[10_000];
+    new Random(42).nextBytes(content);
+    // a pool of the size class above the chunk size
+    ByteBufferPublisher publisher =
+        new ByteBufferPublisher(
+            () -> Channels.newChannel(new ByteArrayInputStream(content)),
+            new ByteBufferPool(2048, 4, true),
+            1000,
+            executor);
+
+    CollectingSubscriber subscriber = new CollectingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertThat(subscriber.result.get(10, TimeUnit.SECONDS)).isEqualTo(content);
+    assertThat(subscriber.chunks.get()).isEqualTo(10);
+  }
+
+  @Test
+  public void cancellingClosesTheChannel() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    ReadableByteChannel endless =
+        new ReadableByteChannel() {
+          @Override
+          public void close() {
+            closed.set(true);
+          }
+
+          @Override
+          public boolean isOpen() {
+            return !closed.get();
+          }
+
+          @Override
+          public int read(ByteBuffer dst) throws IOException {
+            int count = dst.remaining();
+            dst.position(dst.limit());
+            return count;
+          }
+        };
+    ByteBufferPublisher publisher =
+        new ByteBufferPublisher(() -> endless, new ByteBufferPool(16, 4, false), executor);
+
+    CollectingSubscriber subscriber = new CollectingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    while (subscriber.chunks.get() < 100) {
+      Thread.sleep(1);
+    }
+    subscriber.subscription.cancel();
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!closed.get() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(closed.get()).isTrue();
+    assertThat(subscriber.result).isNotDone();
+  }
+
+  @Test
+  public void errorsAreSignalled() throws Exception {
+    ByteBufferPublisher publisher =
+        new ByteBufferPublisher(
+            () -> {
+              throw new ResourceNotFoundException("missing");
+            },
+            new ByteBufferPool(16, 4, false),
+            executor);
+
+    CollectingSubscriber subscriber = new CollectingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertThat(subscriber.result)
+        .failsWithin(10, TimeUnit.SECONDS)
+        .withThrowableOfType(Exception.class)
+        .withCauseInstanceOf(ResourceNotFoundException.class);
+
+    CollectingSubscriber illegalSubscriber = new CollectingSubscriber();
+    publisher.subscribe(illegalSubscriber);
+    illegalSubscriber.subscription.request(0);
+    assertThat(illegalSubscriber.result)
+        .failsWithin(10, TimeUnit.SECONDS)
+        .withThrowableOfType(Exception.class)
+        .withCauseInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,111 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.digitalcollections.commons.file.backend.impl.FileResourceRepositoryImpl;
+import de.digitalcollections.commons.file.backend.impl.IdentifierPatternToFileResourceUriResolvingConfig;
+import de.digitalcollections.model.exception.ResourceNotFoundException;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+public class ContentDigestServiceImplTest {
+
+  private static final String HELLO_SHA256 =
+      "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+  private final FileResourceServiceImpl service =
+      new FileResourceServiceImpl(
+          new FileResourceRepositoryImpl(
+              new IdentifierPatternToFileResourceUriResolvingConfig(),
+              null,
+              new DefaultResourceLoader()));
+
+  private ContentDigestServiceImpl createDigestService(Path directory) {
+    ContentDigestConfig config = new ContentDigestConfig();
+    config.setDirectory(directory.toString());
+    config.setPersistent(true);
+    return new ContentDigestServiceImpl(service, config);
+  }
+
+  @Test
+  public void digestsAreComputedOncePerVersion(@TempDir Path tempDir) throws Exception {
+    Path file = Files.write(tempDir.resolve("hello.txt"), "hello".getBytes(StandardCharsets.UTF_8));
+    FileResource resource = new FileResource();
+    resource.setUri(file.toUri());
+    Path digestDirectory = tempDir.resolve("digests");
+
+    ContentDigestServiceImpl digestService = createDigestService(digestDirectory);
+    assertThat(digestService.getDigest(resource)).isEqualTo(HELLO_SHA256);
+    assertThat(digestService.getDigest(resource)).isEqualTo(HELLO_SHA256);
+    assertThat(digestService.getComputationCount()).isEqualTo(1);
+    assertThat(digestService.getHitCount()).isEqualTo(1);
+
+    // kept across restarts
+    ContentDigestServiceImpl restarted = createDigestService(digestDirectory);
+    assertThat(restarted.getETag(resource)).isEqualTo("\"" + HELLO_SHA256 + "\"");
+    assertThat(restarted.getComputationCount()).isZero();
+
+    // computed again after a change
+    Files.write(file, "world".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(10)));
+    assertThat(restarted.getDigest(resource)).isNotEqualTo(HELLO_SHA256);
+    assertThat(restarted.getComputationCount()).isEqualTo(1);
+
+    FileResource missing = new FileResource();
+    missing.setUri(tempDir.resolve("missing.txt").toUri());
+    assertThatThrownBy(() -> restarted.getDigest(missing))
+        .isInstanceOf(ResourceNotFoundException.class);
+  }
+
+  @Test
+  public void digestsAreReadFromTheirFilesBeyondTheMemoryBound(@TempDir Path tempDir)
+      throws Exception {
+    ContentDigestConfig config = new ContentDigestConfig();
+    config.setDirectory(tempDir.resolve("digests").toString());
+    config.setMaxEntries(1);
+    config.setPersistent(true);
+    ContentDigestServiceImpl digestService = new ContentDigestServiceImpl(service, config);
+    FileResource first = new FileResource();
+    first.setUri(Files.write(tempDir.resolve("first.txt"), "hello".getBytes()).toUri());
+    FileResource second = new FileResource();
+    second.setUri(Files.write(tempDir.resolve("second.txt"), "hello".getBytes()).toUri());
+
+    assertThat(digestService.getDigest(first)).isEqualTo(HELLO_SHA256);
+    assertThat(digestService.getDigest(second)).isEqualTo(HELLO_SHA256);
+    // dropped from memory by the second one
+    assertThat(digestService.getDigest(first)).isEqualTo(HELLO_SHA256);
+    assertThat(digestService.getComputationCount()).isEqualTo(2);
+    assertThat(digestService.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void persistentDigestsRequireADirectory() {
+    ContentDigestConfig config = new ContentDigestConfig();
+    config.setPersistent(true);
+    assertThatThrownBy(() -> new ContentDigestServiceImpl(service, config))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void entityTagsAreMatched(@TempDir Path tempDir) throws Exception {
+    FileResource resource = new FileResource();
+    resource.setUri(Files.write(tempDir.resolve("hello.txt"), "hello".getBytes()).toUri());
+    ContentDigestServiceImpl digestService =
+        new ContentDigestServiceImpl(service, new ContentDigestConfig());
+
+    String etag = "\"" + HELLO_SHA256 + "\"";
+    assertThat(digestService.matchesETag(resource, etag)).isTrue();
+    assertThat(digestService.matchesETag(resource, "\"other\", W/" + etag)).isTrue();
+    assertThat(digestService.matchesETag(resource, "*")).isTrue();
+    assertThat(digestService.matchesETag(resource, "\"other\"")).isFalse();
+    assertThat(digestService.matchesETag(resource, null)).isFalse();
+  }
+}
@@ -0,0 +1,81 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Document;
+
+/**
+ * JMH benchmark parsing a small METS file with a newly configured {@link DocumentBuilderFactory}
+ * per document (former implementation of {@link FileResourceServiceImpl#getAsDocument}) and with
+ * builders of a {@link DocumentBuilderPool}. Not run by the test suite, start {@link
+ * #main(String[])} after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class DocumentBuilderPoolBenchmark {
+
+  private byte[] mets;
+  private DocumentBuilderPool pool;
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(DocumentBuilderPoolBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    try (InputStream is = getClass().getResourceAsStream("/mets.xml")) {
+      if (is == null) {
+        throw new IOException("mets.xml not found");
+      }
+      mets = is.readAllBytes();
+    }
+    pool = new DocumentBuilderPool(64);
+  }
+
+  @Benchmark
+  public Document parseFormer() throws Exception {
+    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+    dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    dbf.setNamespaceAware(true);
+    DocumentBuilder db = dbf.newDocumentBuilder();
+    return db.parse(new ByteArrayInputStream(mets));
+  }
+
+  @Benchmark
+  public Document parsePooled() throws Exception {
+    DocumentBuilder db = pool.acquire();
+    try {
+      return db.parse(new ByteArrayInputStream(mets));
+    } finally {
+      pool.release(db);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import de.digitalcollections.commons.file.backend.impl.FileResourceRepositoryImpl;
+import de.digitalcollections.commons.file.backend.impl.IdentifierPatternToFileResourceUriResolvingConfig;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.DefaultResourceLoader;
+
+/**
+ * JMH benchmark comparing the former {@code IOUtils} based reading of {@link
+ * FileResourceServiceImpl#getAsBytes(FileResource)} and {@link
+ * FileResourceServiceImpl#getAsString(FileResource, java.nio.charset.Charset)} with the current
+ * implementation. Not run by the test suite, start {@link #main(String[])} after {@code mvn
+ * test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileResourceServiceImplBenchmark {
+
+  private Path file;
+  private FileResource knownSize;
+  private FileResourceRepositoryImpl repository;
+  private FileResourceServiceImpl service;
+
+  @Param({"4096", "1048576"})
+  private int size;
+
+  private FileResource unknownSize;
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(FileResourceServiceImplBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    byte[] content = new byte[size];
+    Random random = new Random(42);
+    for (int i = 0; i < size; i++) {
+      content[i] = (byte) ('a' + random.nextInt(26));
+    }
+    file = Files.write(Files.createTempFile("benchmark", ".txt"), content);
+    repository =
+        new FileResourceRepositoryImpl(
+            new IdentifierPatternToFileResourceUriResolvingConfig(),
+            null,
+            new DefaultResourceLoader());
+    service = new FileResourceServiceImpl(repository);
+    knownSize = new FileResource();
+    knownSize.setUri(file.toUri());
+    knownSize.setSizeInBytes(size);
+    unknownSize = new FileResource();
+    unknownSize.setUri(file.toUri());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    service.destroy();
+    repository.destroy();
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public byte[] getAsBytesFormer() throws Exception {
+    try (InputStream is = service.getInputStream(knownSize)) {
+      return IOUtils.toByteArray(is);
+    }
+  }
+
+  @Benchmark
+  public byte[] getAsBytesKnownSize() throws Exception {
+    return service.getAsBytes(knownSize);
+  }
+
+  @Benchmark
+  public byte[] getAsBytesUnknownSize() throws Exception {
+    return service.getAsBytes(unknownSize);
+  }
+
+  @Benchmark
+  public String getAsStringFormer() throws Exception {
+    try (InputStream is = service.getInputStream(knownSize)) {
+      return IOUtils.toString(is, StandardCharsets.UTF_8);
+    }
+  }
+
+  @Benchmark
+  public String getAsStringKnownSize() throws Exception {
+    return service.getAsString(knownSize, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,265 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import de.digitalcollections.commons.file.backend.impl.FileResourceRepositoryImpl;
+import de.digitalcollections.commons.file.backend.impl.IdentifierPatternToFileResourceUriResolvingConfig;
+import de.digitalcollections.commons.file.business.api.FileResourceService;
+import de.digitalcollections.model.exception.ResourceIOException;
+import de.digitalcollections.model.identifiable.resource.FileResource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.unit.DataSize;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class FileResourceServiceImplTest {
+
+  private final FileResourceServiceImpl service =
+      new FileResourceServiceImpl(
+          new FileResourceRepositoryImpl(
+              new IdentifierPatternToFileResourceUriResolvingConfig(),
+              null,
+              new DefaultResourceLoader()));
+
+  private static FileResource createResource(Path file, long sizeInBytes) {
+    FileResource resource = new FileResource();
+    resource.setUri(file.toUri());
+    resource.setSizeInBytes(sizeInBytes);
+    return resource;
+  }
+
+  @Test
+  public void getAsBytesWithKnownAndUnknownSize(@TempDir Path tempDir) throws Exception {
+    byte[] content = new byte[200 * 1024 + 17];
+    new Random(42).nextBytes(content);
+    Path file = Files.write(tempDir.resolve("content.bin"), content);
+
+    assertThat(service.getAsBytes(createResource(file, content.length))).isEqualTo(content);
+    assertThat(service.getAsBytes(createResource(file, 0))).isEqualTo(content);
+    // outdated sizes, e.g. from a cached lookup
+    assertThat(service.getAsBytes(createResource(file, 100))).isEqualTo(content);
+    assertThat(service.getAsBytes(createResource(file, content.length + 100))).isEqualTo(content);
+  }
+
+  @Test
+  public void getAsString(@TempDir Path tempDir) throws Exception {
+    String content = "Grüße aus München";
+    Path file =
+        Files.write(tempDir.resolve("content.txt"), content.getBytes(StandardCharsets.UTF_8));
+
+    assertThat(service.getAsString(createResource(file, Files.size(file)), StandardCharsets.UTF_8))
+        .isEqualTo(content);
+    assertThat(service.getAsString(createResource(file, 0), StandardCharsets.UTF_8))
+        .isEqualTo(content);
+  }
+
+  @Test
+  public void smallContentsAreCached(@TempDir Path tempDir) throws Exception {
+    ContentCacheConfig config = new ContentCacheConfig();
+    config.setEnabled(true);
+    config.setMaxResourceSize(DataSize.ofBytes(100));
+    FileResourceServiceImpl cachingService =
+        new FileResourceServiceImpl(
+            new FileResourceRepositoryImpl(
+                new IdentifierPatternToFileResourceUriResolvingConfig(),
+                null,
+                new DefaultResourceLoader()),
+            config);
+    Path file = Files.write(tempDir.resolve("manifest.json"), "{}".getBytes());
+    FileResource resource = createResource(file, 2);
+    resource.setLastModified(LocalDateTime.of(2020, 1, 1, 0, 0));
+
+    assertThat(cachingService.getAsString(resource, StandardCharsets.UTF_8)).isEqualTo("{}");
+    Files.write(file, "[]".getBytes());
+    assertThat(cachingService.getAsBytes(resource)).isEqualTo("{}".getBytes());
+    try (InputStream is = cachingService.getInputStream(resource)) {
+      assertThat(is.readAllBytes()).isEqualTo("{}".getBytes());
+    }
+    assertThat(cachingService.getContentCacheStatistics().getHitCount()).isEqualTo(2);
+
+    // found again after the modification
+    resource.setLastModified(LocalDateTime.of(2020, 1, 2, 0, 0));
+    assertThat(cachingService.getAsString(resource, StandardCharsets.UTF_8)).isEqualTo("[]");
+
+    // too large to be cached
+    Path large = Files.write(tempDir.resolve("large.bin"), new byte[101]);
+    assertThat(cachingService.getAsBytes(createResource(large, 101))).hasSize(101);
+    assertThat(cachingService.getContentCacheStatistics().getSize()).isEqualTo(2);
+  }
+
+  @Test
+  public void largerContentsAreCachedOffHeap(@TempDir Path tempDir) throws Exception {
+    ContentCacheConfig config = new ContentCacheConfig();
+    config.getOffHeap().setEnabled(true);
+    config.getOffHeap().setMaxSize(DataSize.ofMegabytes(1));
+    config.getOffHeap().setSlabSize(DataSize.ofMegabytes(1));
+    FileResourceServiceImpl cachingService =
+        new FileResourceServiceImpl(
+            new FileResourceRepositoryImpl(
+                new IdentifierPatternToFileResourceUriResolvingConfig(),
+                null,
+                new DefaultResourceLoader()),
+            config);
+    byte[] content = new byte[300 * 1024];
+    new Random(42).nextBytes(content);
+    Path file = Files.write(tempDir.resolve("derivative.bin"), content);
+    FileResource resource = createResource(file, content.length);
+
+    assertThat(cachingService.getAsBytes(resource)).isEqualTo(content);
+    Files.write(file, new byte[content.length]);
+    try (InputStream is = cachingService.getInputStream(resource)) {
+      assertThat(is.readAllBytes()).isEqualTo(content);
+    }
+    try (InputStream is = cachingService.getInputStream(resource, 10, 5)) {
+      assertThat(is.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, 10, 15));
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(cachingService.transferTo(resource, Channels.newChannel(out)))
+        .isEqualTo(content.length);
+    assertThat(out.toByteArray()).isEqualTo(content);
+    assertThat(cachingService.getOffHeapContentCacheStatistics().getHitCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void getAsDocumentReusesParsers() throws Exception {
+    FileResource resource = new FileResource();
+    resource.setUri(URI.create("classpath:mets.xml"));
+
+    for (int i = 0; i < 3; i++) {
+      Document document = service.getAsDocument(resource);
+      assertThat(document.getDocumentElement().getNamespaceURI())
+          .isEqualTo("http://www.loc.gov/METS/");
+      assertThat(document.getElementsByTagNameNS("http://www.loc.gov/METS/", "fileGrp").getLength())
+          .isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void streamXml() throws Exception {
+    FileResource resource = new FileResource();
+    resource.setUri(URI.create("classpath:mets.xml"));
+
+    List<String> fileGroups = new ArrayList<>();
+    XMLStreamReader reader = service.getAsXmlStreamReader(resource);
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT
+            && "http://www.loc.gov/METS/".equals(reader.getNamespaceURI())
+            && "fileGrp".equals(reader.getLocalName())) {
+          fileGroups.add(reader.getAttributeValue(null, "USE"));
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    assertThat(fileGroups).containsExactly("DEFAULT", "THUMBS");
+
+    List<String> files = new ArrayList<>();
+    service.parseXml(
+        resource,
+        new DefaultHandler() {
+          @Override
+          public void startElement(String uri, String localName, String qName, Attributes atts) {
+            if ("http://www.loc.gov/METS/".equals(uri) && "file".equals(localName)) {
+              files.add(atts.getValue("ID"));
+            }
+          }
+        });
+    assertThat(files).hasSize(4).startsWith("FILE_0001_DEFAULT");
+  }
+
+  @Test
+  public void parseXmlRejectsExternalEntities(@TempDir Path tempDir) throws Exception {
+    Path secret = Files.write(tempDir.resolve("secret.txt"), "secret".getBytes());
+    Path xml =
+        Files.write(
+            tempDir.resolve("xxe.xml"),
+            ("<?xml version=\"1.0\"?><!DOCTYPE root [<!ENTITY xxe SYSTEM \""
+                    + secret.toUri()
+                    + "\">]><root>&xxe;</root>")
+                .getBytes(StandardCharsets.UTF_8));
+    StringBuilder text = new StringBuilder();
+    try {
+      service.parseXml(
+          createResource(xml, Files.size(xml)),
+          new DefaultHandler() {
+            @Override
+            public void characters(char[] ch, int start, int length) {
+              text.append(ch, start, length);
+            }
+          });
+    } catch (ResourceIOException e) {
+      // access to the external entity is denied
+    }
+    assertThat(text.toString()).doesNotContain("secret");
+  }
+
+  @Test
+  public void defaultMethodsAreBuiltOnGetInputStream() throws Exception {
+    byte[] content = "0123456789".getBytes(StandardCharsets.US_ASCII);
+    FileResource resource = new FileResource();
+    resource.setUri(URI.create("classpath:content.txt"));
+    FileResourceService minimal = mock(FileResourceService.class, CALLS_REAL_METHODS);
+    doAnswer(invocation -> new ByteArrayInputStream(content))
+        .when(minimal)
+        .getInputStream(resource);
+    doAnswer(invocation -> content.clone()).when(minimal).getAsBytes(resource);
+
+    try (InputStream is = minimal.getInputStream(resource, 2, 3)) {
+      assertThat(is.readAllBytes()).isEqualTo("234".getBytes(StandardCharsets.US_ASCII));
+    }
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    assertThat(minimal.transferTo(resource, 7, -1, Channels.newChannel(target))).isEqualTo(3);
+    assertThat(target.toString(StandardCharsets.US_ASCII)).isEqualTo("789");
+
+    List<String> chunks = new ArrayList<>();
+    minimal
+        .publish(resource, 4)
+        .subscribe(
+            new Flow.Subscriber<>() {
+              @Override
+              public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+              }
+
+              @Override
+              public void onNext(ByteBuffer item) {
+                chunks.add(StandardCharsets.US_ASCII.decode(item).toString());
+              }
+
+              @Override
+              public void onError(Throwable throwable) {
+                chunks.add(throwable.toString());
+              }
+
+              @Override
+              public void onComplete() {
+                chunks.add("complete");
+              }
+            });
+    assertThat(chunks).containsExactly("0123", "4567", "89", "complete");
+  }
+}
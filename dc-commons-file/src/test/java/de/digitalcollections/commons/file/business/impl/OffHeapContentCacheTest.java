@@ -0,0 +1,112 @@
+package de.digitalcollections.commons.file.business.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+public class OffHeapContentCacheTest {
+
+  private static OffHeapContentCache<String> createCache(String evictionPolicy) {
+    OffHeapContentCacheConfig config = new OffHeapContentCacheConfig();
+    config.setEnabled(true);
+    config.setMinBlockSize(DataSize.ofBytes(16));
+    config.setSlabSize(DataSize.ofBytes(64));
+    config.setMaxSize(DataSize.ofBytes(128));
+    config.setEvictionPolicy(evictionPolicy);
+    return new OffHeapContentCache<>(config);
+  }
+
+  private static ReadableByteChannel source(int length, int value) {
+    byte[] bytes = new byte[length];
+    Arrays.fill(bytes, (byte) value);
+    return Channels.newChannel(new ByteArrayInputStream(bytes));
+  }
+
+  private static void put(OffHeapContentCache<String> cache, String key, int length)
+      throws Exception {
+    OffHeapContentCache<String>.Content content =
+        cache.put(key, source(length, key.charAt(0)), length);
+    assertThat(content).isNotNull();
+    content.close();
+  }
+
+  @Test
+  public void contentsAreReadAsSlices() throws Exception {
+    OffHeapContentCache<String> cache = createCache("lru");
+    put(cache, "a", 20);
+    try (OffHeapContentCache<String>.Content content = cache.get("a")) {
+      ByteBuffer buffer = content.getBuffer();
+      assertThat(buffer.isDirect()).isTrue();
+      assertThat(buffer.isReadOnly()).isTrue();
+      assertThat(buffer.remaining()).isEqualTo(20);
+      assertThat(buffer.get(19)).isEqualTo((byte) 'a');
+    }
+    assertThat(cache.get("b")).isNull();
+    // larger than a slab
+    assertThat(cache.put("c", source(65, 'c'), 65)).isNull();
+    // source ended early
+    assertThat(cache.put("d", source(10, 'd'), 20)).isNull();
+    assertThat(cache.getAllocatedSize()).isEqualTo(64);
+  }
+
+  @Test
+  public void freedBlocksAreMergedAndReused() throws Exception {
+    OffHeapContentCache<String> cache = createCache("lru");
+    // four blocks of 16 bytes in the first slab, 64 bytes in the second
+    put(cache, "a", 16);
+    put(cache, "b", 16);
+    put(cache, "c", 16);
+    put(cache, "d", 16);
+    put(cache, "e", 64);
+    assertThat(cache.getAllocatedSize()).isEqualTo(128);
+
+    // needs the whole first slab: a to d are evicted and merged again
+    cache.get("e").close();
+    put(cache, "f", 33);
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.get("d")).isNull();
+    try (OffHeapContentCache<String>.Content content = cache.get("e")) {
+      assertThat(content.getBuffer().get(63)).isEqualTo((byte) 'e');
+    }
+    assertThat(cache.getStatistics().getEvictionCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void leasedContentsAreNotOverwritten() throws Exception {
+    OffHeapContentCache<String> cache = createCache("lru");
+    put(cache, "a", 64);
+    put(cache, "b", 64);
+    OffHeapContentCache<String>.Content leased = cache.get("a");
+    cache.get("b").close();
+
+    // a is evicted, but its memory is still leased and b is evicted as well
+    put(cache, "c", 64);
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.get("b")).isNull();
+    assertThat(leased.getBuffer().get(0)).isEqualTo((byte) 'a');
+    put(cache, "d", 64);
+    leased.close();
+    // freed after the lease has been closed
+    put(cache, "e", 64);
+    assertThat(cache.get("e")).isNotNull();
+  }
+
+  @Test
+  public void channelsReadRanges() throws Exception {
+    OffHeapContentCache<String> cache = createCache("lfu");
+    byte[] bytes = "0123456789".getBytes();
+    cache.put("a", Channels.newChannel(new ByteArrayInputStream(bytes)), 10).close();
+    try (ReadableByteChannel channel = cache.get("a").newChannel(3, 4)) {
+      assertThat(new String(Channels.newInputStream(channel).readAllBytes())).isEqualTo("3456");
+    }
+    try (ReadableByteChannel channel = cache.get("a").newChannel(8, -1)) {
+      assertThat(new String(Channels.newInputStream(channel).readAllBytes())).isEqualTo("89");
+    }
+  }
+}